@@ -0,0 +1,86 @@
+package benchmark;
+
+import chess.*;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine calls made for every websocket move: playing the move, the checkmate
+ * test in GameService.doCheck, and the Gson round trip SQLGameDAO does in
+ * updateGame and getGame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChessGameBenchmark {
+
+    /**
+     * Scholar's mate: e4 e5 Bc4 Nc6 Qh5 Nf6 Qxf7#
+     */
+    static final ChessMove[] SCHOLARS_MATE = {
+            move(2, 5, 4, 5), move(7, 5, 5, 5),
+            move(1, 6, 4, 3), move(8, 2, 6, 3),
+            move(1, 4, 5, 8), move(8, 7, 6, 6),
+            move(5, 8, 7, 6)};
+
+    private ChessGame midGame;
+    private ChessGame mated;
+    private String midGameJson;
+    private Gson gson;
+
+    @Setup
+    public void setup() throws InvalidMoveException {
+        midGame = play(SCHOLARS_MATE.length - 1);
+        mated = play(SCHOLARS_MATE.length);
+        gson = new Gson();
+        midGameJson = gson.toJson(midGame);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public ChessGame makeMove() throws InvalidMoveException {
+        return play(SCHOLARS_MATE.length);
+    }
+
+    @Benchmark
+    public boolean isInCheckmateFalse() {
+        return midGame.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean isInCheckmateTrue() {
+        return mated.isInCheckmate(ChessGame.TeamColor.BLACK);
+    }
+
+    @Benchmark
+    public String gsonSerialize() {
+        return new Gson().toJson(midGame);
+    }
+
+    @Benchmark
+    public ChessGame gsonDeserialize() {
+        return new Gson().fromJson(midGameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame gsonRoundTrip() {
+        return gson.fromJson(gson.toJson(midGame), ChessGame.class);
+    }
+
+    static ChessGame play(int plies) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < plies; i++) {
+            game.makeMove(SCHOLARS_MATE[i]);
+        }
+        return game;
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(ChessPosition.of(startRow, startCol), ChessPosition.of(endRow, endCol), null);
+    }
+}
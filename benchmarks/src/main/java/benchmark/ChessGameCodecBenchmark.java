@@ -0,0 +1,58 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ChessGameCodec with the Gson JSON that games used to be stored as.
+ * Setup prints the encoded size of each format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChessGameCodecBenchmark {
+
+    private ChessGame midGame;
+    private Gson gson;
+    private byte[] encoded;
+    private String json;
+
+    @Setup
+    public void setup() throws InvalidMoveException {
+        midGame = ChessGameBenchmark.play(ChessGameBenchmark.SCHOLARS_MATE.length - 1);
+        gson = new Gson();
+        encoded = ChessGameCodec.encode(midGame);
+        json = gson.toJson(midGame);
+        System.out.printf("%nEncoded size: codec %d bytes, Gson %d bytes%n", encoded.length,
+                json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return ChessGameCodec.encode(midGame);
+    }
+
+    @Benchmark
+    public ChessGame codecDecode() {
+        return ChessGameCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public String gsonEncode() {
+        return gson.toJson(midGame);
+    }
+
+    @Benchmark
+    public ChessGame gsonDecode() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+import service.GameService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameService.doCheck, which runs after every websocket move, against the
+ * in-memory DAOs so no MySQL server is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameServiceBenchmark {
+
+    private GameService gameService;
+    private GameData quietGame;
+    private GameData matedGame;
+
+    @Setup
+    public void setup() throws DataAccessException, InvalidMoveException {
+        GameDAO gameDAO = new GameDAO();
+        gameService = new GameService(new AuthDAO(), gameDAO);
+        int gameID = gameDAO.createGame("bench");
+        quietGame = withGame(gameID, ChessGameBenchmark.play(ChessGameBenchmark.SCHOLARS_MATE.length - 1));
+        matedGame = withGame(gameID, ChessGameBenchmark.play(ChessGameBenchmark.SCHOLARS_MATE.length));
+    }
+
+    @Benchmark
+    public String doCheckQuiet() {
+        return gameService.doCheck(quietGame, quietGame.game());
+    }
+
+    @Benchmark
+    public String doCheckMate() {
+        return gameService.doCheck(matedGame, matedGame.game());
+    }
+
+    private static GameData withGame(int gameID, ChessGame game) {
+        return new GameData(gameID, "white", "black", "bench", game);
+    }
+}
@@ -0,0 +1,173 @@
+package benchmark;
+
+import chess.*;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree using only the public
+ * {@link ChessGame#validMoves} and {@link ChessGame#makeMove} API.
+ * <p>
+ * The engine does not generate castling or en passant, so expected counts match
+ * published perft values only until one of those moves would first appear. Past
+ * that point (START depth 5, ENDGAME depths 3-5) they are this engine's own
+ * baselines, taken when the generator was cross-checked in PerftTests.
+ */
+public final class Perft {
+
+    /**
+     * Standard perft positions, drawn the same way as the passoff test boards
+     */
+    public enum Position {
+        START("""
+                |r|n|b|q|k|b|n|r|
+                |p|p|p|p|p|p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |P|P|P|P|P|P|P|P|
+                |R|N|B|Q|K|B|N|R|
+                """, ChessGame.TeamColor.WHITE, new long[]{20, 400, 8902, 197281, 4865351}),
+        ENDGAME("""
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE, new long[]{14, 191, 2810, 43087, 671300}),
+        PROMOTIONS("""
+                |n| |n| | | | | |
+                |P|P|P|k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|p|p|p|
+                | | | | | |N| |N|
+                """, ChessGame.TeamColor.BLACK, new long[]{24, 496, 9483, 182838, 3605103});
+
+        private final String boardText;
+        private final ChessGame.TeamColor turn;
+        private final long[] expectedNodes;
+
+        Position(String boardText, ChessGame.TeamColor turn, long[] expectedNodes) {
+            this.boardText = boardText;
+            this.turn = turn;
+            this.expectedNodes = expectedNodes;
+        }
+
+        public ChessGame newGame() {
+            ChessGame game = new ChessGame();
+            game.setBoard(loadBoard(boardText));
+            game.setTeamTurn(turn);
+            return game;
+        }
+
+        /**
+         * @return the node count this engine must produce at the given depth (1-5)
+         */
+        public long expectedNodes(int depth) {
+            return expectedNodes[depth - 1];
+        }
+    }
+
+    private static final Map<Character, ChessPiece.PieceType> CHAR_TO_TYPE = Map.of(
+            'p', ChessPiece.PieceType.PAWN,
+            'n', ChessPiece.PieceType.KNIGHT,
+            'r', ChessPiece.PieceType.ROOK,
+            'q', ChessPiece.PieceType.QUEEN,
+            'k', ChessPiece.PieceType.KING,
+            'b', ChessPiece.PieceType.BISHOP);
+
+    private Perft() {
+    }
+
+    public static long perft(ChessGame game, int depth) {
+        long nodes = 0;
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+                    continue;
+                }
+                Collection<ChessMove> moves = game.validMoves(position);
+                if (depth == 1) {
+                    nodes += moves.size();
+                } else {
+                    for (ChessMove move : moves) {
+                        nodes += perft(play(game, move), depth - 1);
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs perft and fails if the node count differs from the expected value
+     */
+    public static long verifiedPerft(Position position, int depth) {
+        long nodes = perft(position.newGame(), depth);
+        if (nodes != position.expectedNodes(depth)) {
+            throw new IllegalStateException(String.format("perft(%s, %d) = %d, expected %d",
+                    position, depth, nodes, position.expectedNodes(depth)));
+        }
+        return nodes;
+    }
+
+    private static ChessGame play(ChessGame game, ChessMove move) {
+        ChessGame next = new ChessGame();
+        next.setBoard(game.getBoard().clone());
+        next.setTeamTurn(game.getTeamTurn());
+        try {
+            next.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("validMoves returned an unplayable move", e);
+        }
+        return next;
+    }
+
+    private static ChessBoard loadBoard(String boardText) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int column = 1;
+        for (char c : boardText.toCharArray()) {
+            switch (c) {
+                case '\n' -> {
+                    column = 1;
+                    row--;
+                }
+                case ' ' -> column++;
+                case '|' -> {
+                }
+                default -> {
+                    ChessGame.TeamColor color = Character.isLowerCase(c) ? ChessGame.TeamColor.BLACK
+                            : ChessGame.TeamColor.WHITE;
+                    board.addPiece(ChessPosition.of(row, column),
+                            ChessPiece.of(color, CHAR_TO_TYPE.get(Character.toLowerCase(c))));
+                    column++;
+                }
+            }
+        }
+        return board;
+    }
+
+    public static void main(String[] args) {
+        for (Position position : Position.values()) {
+            for (int depth = 1; depth <= 5; depth++) {
+                long start = System.nanoTime();
+                long nodes = perft(position.newGame(), depth);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-10s depth %d: %,d nodes (expected %,d), %,.0f nodes/s%n",
+                        position, depth, nodes, position.expectedNodes(depth), nodes / seconds);
+            }
+        }
+    }
+}
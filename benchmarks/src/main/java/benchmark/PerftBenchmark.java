@@ -0,0 +1,49 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perft throughput of the shared chess engine. The {@code nodes} counter is
+ * reported as nodes per second; the trial fails if any node count drifts.
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks-jar-with-dependencies.jar PerftBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerftBenchmark {
+
+    @Param({"START", "ENDGAME", "PROMOTIONS"})
+    public Perft.Position position;
+
+    @Param({"1", "2", "3", "4", "5"})
+    public int depth;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void checkNodeCount() {
+        Perft.verifiedPerft(position, depth);
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long nodes = Perft.perft(position.newGame(), depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
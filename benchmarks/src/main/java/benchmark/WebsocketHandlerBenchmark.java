@@ -0,0 +1,120 @@
+package benchmark;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import model.GameData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import server.websocket.ConnectionManager;
+import server.websocket.WebsocketHandler;
+import service.GameService;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MoveCommand;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Websocket command handling with in-memory DAOs and stub Jetty sessions.
+ * {@code makeMoveMessage} sends MAKE_MOVE text through WebsocketHandler.onMessage,
+ * cycling both knights out and back so every move stays legal. {@code parseMoveCommand}
+ * isolates the two Gson parses the handler does per move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WebsocketHandlerBenchmark {
+
+    private WebsocketHandler handler;
+    private Session whiteSession;
+    private Session blackSession;
+    private String[] moveMessages;
+    private int next;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        AuthDAO authDAO = new AuthDAO();
+        GameDAO gameDAO = new GameDAO();
+        handler = new WebsocketHandler(new ConnectionManager(), new GameService(authDAO, gameDAO), authDAO, gameDAO);
+
+        String whiteToken = authDAO.createAuth("white");
+        String blackToken = authDAO.createAuth("black");
+        int gameID = gameDAO.createGame("bench");
+        GameData game = gameDAO.getGame(gameID);
+        gameDAO.updateGame(new GameData(gameID, "white", "black", game.gameName(), game.game()));
+
+        whiteSession = stubSession(blackhole);
+        blackSession = stubSession(blackhole);
+        Gson gson = new Gson();
+        handler.onMessage(whiteSession, gson.toJson(new ConnectCommand(whiteToken, gameID)));
+        handler.onMessage(blackSession, gson.toJson(new ConnectCommand(blackToken, gameID)));
+
+        moveMessages = new String[]{
+                gson.toJson(new MoveCommand(whiteToken, gameID, move(1, 7, 3, 6))),
+                gson.toJson(new MoveCommand(blackToken, gameID, move(8, 7, 6, 6))),
+                gson.toJson(new MoveCommand(whiteToken, gameID, move(3, 6, 1, 7))),
+                gson.toJson(new MoveCommand(blackToken, gameID, move(6, 6, 8, 7)))};
+        next = 0;
+
+        // One full cycle must leave the game where it started, or we would be timing the error path
+        long startKey = gameDAO.getGame(gameID).game().getZobristKey();
+        for (int i = 0; i < moveMessages.length; i++) {
+            makeMoveMessage();
+        }
+        if (gameDAO.getGame(gameID).game().getZobristKey() != startKey) {
+            throw new IllegalStateException("MAKE_MOVE cycle was rejected by the handler");
+        }
+    }
+
+    @Benchmark
+    public void makeMoveMessage() throws Exception {
+        int index = next;
+        next = (next + 1) & 3;
+        handler.onMessage(index % 2 == 0 ? whiteSession : blackSession, moveMessages[index]);
+    }
+
+    @Benchmark
+    public MoveCommand parseMoveCommand() {
+        String message = moveMessages[0];
+        Map<?, ?> commandData = new Gson().fromJson(message, Map.class);
+        if (!"MAKE_MOVE".equals(commandData.get("commandType"))) {
+            throw new IllegalStateException();
+        }
+        return new Gson().fromJson(message, MoveCommand.class);
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(ChessPosition.of(startRow, startCol), ChessPosition.of(endRow, endCol), null);
+    }
+
+    private static Session stubSession(Blackhole blackhole) {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (args != null) {
+                        blackhole.consume(args[0]);
+                        if (args.length > 1 && args[1] instanceof WriteCallback callback) {
+                            callback.writeSuccess();
+                        }
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
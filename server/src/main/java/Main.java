@@ -5,6 +5,9 @@ public class Main {
     public static void main(String[] args) {
         var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
-        new Server().run(8080);
+        // -Dchess.virtualThreads=N serves requests on virtual threads, N at a time
+        int virtualThreads = Integer.getInteger("chess.virtualThreads", 0);
+        Server server = virtualThreads > 0 ? Server.withVirtualThreads(virtualThreads) : new Server();
+        server.run(8080);
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package dataaccess;
+
+import model.AuthData;
+
+/**
+ * Serves getAuth from caches in front of another AuthDAO. Valid tokens and
+ * tokens the wrapped DAO did not recognise are cached separately, so a flood of
+ * bad tokens cannot push valid ones out. Deleting auth drops the affected
+ * tokens straight away, and a lookup that overlaps a delete is not cached.
+ */
+public class CachingAuthDAO extends AuthDAO {
+  private final AuthDAO delegate;
+  private final LruCache<String, AuthData> tokens;
+  private final LruCache<String, Boolean> invalidTokens;
+  private long invalidations;
+
+  /**
+   * @param delegate         the DAO that stores the tokens
+   * @param maxTokens        the most valid tokens, and separately invalid tokens, to keep cached
+   * @param ttlMillis        how long a valid token is served before it is read again
+   * @param invalidTtlMillis how long an invalid token is rejected before it is read again
+   */
+  public CachingAuthDAO(AuthDAO delegate, int maxTokens, long ttlMillis, long invalidTtlMillis) {
+    this(delegate, new LruCache<>(maxTokens, ttlMillis), new LruCache<>(maxTokens, invalidTtlMillis));
+  }
+
+  CachingAuthDAO(AuthDAO delegate, LruCache<String, AuthData> tokens, LruCache<String, Boolean> invalidTokens) {
+    this.delegate = delegate;
+    this.tokens = tokens;
+    this.invalidTokens = invalidTokens;
+  }
+
+  @Override
+  public String createAuth(String username) throws DataAccessException {
+    String authToken = delegate.createAuth(username);
+    synchronized (this) {
+      invalidTokens.invalidate(authToken);
+      tokens.put(authToken, new AuthData(authToken, username));
+    }
+    return authToken;
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws DataAccessException {
+    AuthData auth = tokens.get(authToken);
+    if (auth != null || invalidTokens.get(authToken) != null) {
+      return auth;
+    }
+
+    long seen;
+    synchronized (this) {
+      seen = invalidations;
+    }
+    auth = delegate.getAuth(authToken);
+    synchronized (this) {
+      if (seen == invalidations) {
+        if (auth != null) {
+          tokens.put(authToken, auth);
+        } else {
+          invalidTokens.put(authToken, Boolean.TRUE);
+        }
+      }
+    }
+    return auth;
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws DataAccessException {
+    try {
+      delegate.deleteAuth(authToken);
+    } finally {
+      synchronized (this) {
+        invalidations++;
+        tokens.invalidate(authToken);
+      }
+    }
+  }
+
+  @Override
+  public void deleteAllAuth() throws DataAccessException {
+    try {
+      delegate.deleteAllAuth();
+    } finally {
+      synchronized (this) {
+        invalidations++;
+        tokens.clear();
+      }
+    }
+  }
+
+  /**
+   * @return how many lookups were answered with a cached valid token
+   */
+  public long getHits() {
+    return tokens.getHits();
+  }
+
+  /**
+   * @return how many lookups were answered with a cached invalid token
+   */
+  public long getInvalidHits() {
+    return invalidTokens.getHits();
+  }
+
+  /**
+   * @return how many lookups went to the wrapped DAO
+   */
+  public long getMisses() {
+    return invalidTokens.getMisses();
+  }
+}
@@ -0,0 +1,191 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import model.GameData;
+
+/**
+ * Serves getGame from an LRU cache in front of another GameDAO. Writes go
+ * through to the wrapped DAO: the cached game is dropped before the write and
+ * replaced with the written game once the write succeeds. A read that overlaps
+ * a write is not cached, so it cannot put back a game the write replaced.
+ * <p>
+ * Boards are cached encoded and every getGame decodes a board of its own, so
+ * callers never share a ChessGame.
+ */
+public class CachingGameDAO extends GameDAO {
+
+  /**
+   * A cached game: its row without the board, and the board encoded
+   */
+  record CachedGame(GameData game, byte[] board) {
+
+    static CachedGame of(GameData game) {
+      byte[] board = game.game() == null ? null : ChessGameCodec.encode(game.game());
+      return new CachedGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
+              game.gameName(), null), board);
+    }
+
+    GameData copy() {
+      ChessGame chessGame = board == null ? null : ChessGameCodec.decode(board);
+      return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
+    }
+  }
+
+  private final GameDAO delegate;
+  private final LruCache<Integer, CachedGame> cache;
+  private long invalidations;
+
+  /**
+   * @param delegate   the DAO that stores the games
+   * @param maxGames   the most games to keep cached
+   * @param ttlMillis  how long a cached game is served before it is read again
+   */
+  public CachingGameDAO(GameDAO delegate, int maxGames, long ttlMillis) {
+    this(delegate, new LruCache<>(maxGames, ttlMillis));
+  }
+
+  CachingGameDAO(GameDAO delegate, LruCache<Integer, CachedGame> cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public Integer createGame(String gameName) throws DataAccessException {
+    return delegate.createGame(gameName);
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws DataAccessException {
+    CachedGame cached = cache.get(gameID);
+    if (cached != null) {
+      return cached.copy();
+    }
+
+    long seen;
+    synchronized (this) {
+      seen = invalidations;
+    }
+    GameData game = delegate.getGame(gameID);
+    if (game != null) {
+      CachedGame read = CachedGame.of(game);
+      synchronized (this) {
+        if (seen == invalidations) {
+          cache.put(gameID, read);
+        }
+      }
+    }
+    return game;
+  }
+
+  @Override
+  public void forEachGame(GameQuery query, GameSink sink) throws DataAccessException {
+    delegate.forEachGame(query, sink);
+  }
+
+  @Override
+  public void forEachGameSummary(GameQuery query, GameSink sink) throws DataAccessException {
+    delegate.forEachGameSummary(query, sink);
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    if (game == null) {
+      delegate.updateGame(game);
+      return;
+    }
+    long written = invalidate(game.gameID());
+    delegate.updateGame(game);
+    replace(game, written);
+  }
+
+  /**
+   * Drops the cached game rather than replacing it, since the board the caller
+   * holds may be older than the stored one
+   */
+  @Override
+  public void updatePlayers(GameData game) throws DataAccessException {
+    if (game == null) {
+      delegate.updatePlayers(game);
+      return;
+    }
+    invalidate(game.gameID());
+    delegate.updatePlayers(game);
+    invalidate(game.gameID());
+  }
+
+  @Override
+  public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+    invalidate(gameID);
+    boolean claimed = delegate.claimSeat(gameID, color, username);
+    invalidate(gameID);
+    return claimed;
+  }
+
+  @Override
+  public void recordMove(GameData game, ChessMove move) throws DataAccessException {
+    if (game == null) {
+      delegate.recordMove(game, move);
+      return;
+    }
+    long written = invalidate(game.gameID());
+    delegate.recordMove(game, move);
+    replace(game, written);
+  }
+
+  @Override
+  public void deleteGames() throws DataAccessException {
+    synchronized (this) {
+      invalidations++;
+      cache.clear();
+    }
+    try {
+      delegate.deleteGames();
+    } finally {
+      synchronized (this) {
+        invalidations++;
+        cache.clear();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws DataAccessException {
+    delegate.close();
+  }
+
+  public long getHits() {
+    return cache.getHits();
+  }
+
+  public long getMisses() {
+    return cache.getMisses();
+  }
+
+  /**
+   * Drops the cached game before a write
+   *
+   * @return the generation the write started at
+   */
+  private synchronized long invalidate(int gameID) {
+    cache.invalidate(gameID);
+    return ++invalidations;
+  }
+
+  /**
+   * Caches the written game, unless another write started while it was being
+   * written, in which case neither is cached since their order is not known
+   */
+  private void replace(GameData game, long written) {
+    CachedGame cached = CachedGame.of(game);
+    synchronized (this) {
+      if (written == invalidations) {
+        cache.put(game.gameID(), cached);
+      } else {
+        cache.invalidate(game.gameID());
+      }
+      invalidations++;
+    }
+  }
+}
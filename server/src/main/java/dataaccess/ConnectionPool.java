@@ -0,0 +1,343 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections.
+ * <p>
+ * Closing a borrowed connection returns it to the pool instead of closing the
+ * underlying connection. Idle connections are checked with
+ * {@link Connection#isValid(int)} before they are handed out and are closed once
+ * they have been idle longer than the idle timeout. Each physical connection
+ * keeps a {@link StatementCache} so that repeated SQL reuses its prepared
+ * statement across borrows.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PhysicalConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * @param factory           opens physical connections
+     * @param maxSize           the most connections that can be open at once
+     * @param maxWaitMillis     how long a borrower waits for a free connection
+     * @param idleTimeoutMillis how long a connection may sit idle before it is closed
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long maxWaitMillis, long idleTimeoutMillis) {
+        this(factory, maxSize, maxWaitMillis, idleTimeoutMillis, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * @param factory            opens physical connections
+     * @param maxSize            the most connections that can be open at once
+     * @param maxWaitMillis      how long a borrower waits for a free connection
+     * @param idleTimeoutMillis  how long a connection may sit idle before it is closed
+     * @param statementCacheSize how many prepared statements each connection keeps open
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long maxWaitMillis, long idleTimeoutMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the max wait for one to be free. The
+     * caller must close it, which hands it back to the pool.
+     */
+    public Connection getConnection() throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Connection pool is closed");
+        }
+        acquirePermit();
+        try {
+            PhysicalConnection physical = takeValidIdle();
+            if (physical == null) {
+                physical = new PhysicalConnection(factory.open());
+            }
+            active.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException(e.getMessage());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws DataAccessException {
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new DataAccessException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still usable, closing
+     * any stale or broken ones found on the way
+     */
+    private PhysicalConnection takeValidIdle() {
+        while (true) {
+            PhysicalConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (!isExpired(candidate, System.currentTimeMillis()) && isValid(candidate.connection)) {
+                return candidate;
+            }
+            candidate.close();
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PhysicalConnection physical) {
+        active.decrementAndGet();
+        Connection connection = physical.connection;
+        try {
+            if (closed || connection.isClosed()) {
+                physical.close();
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            physical.idleSince = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.addFirst(physical);
+            }
+        } catch (SQLException e) {
+            physical.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes every idle connection that has passed the idle timeout
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PhysicalConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PhysicalConnection candidate = iterator.next();
+                if (isExpired(candidate, now)) {
+                    iterator.remove();
+                    candidate.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return the number of callers blocked waiting for a connection
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return how many prepared statements were reused from a connection's cache
+     */
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    /**
+     * @return how many prepared statements had to be prepared on the database
+     */
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    /**
+     * Closes the idle connections. Borrowed connections are closed when they are
+     * handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (idle) {
+            for (PhysicalConnection candidate : idle) {
+                candidate.close();
+            }
+            idle.clear();
+        }
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PooledConnection(physical));
+    }
+
+    private boolean isExpired(PhysicalConnection candidate, long now) {
+        return now - candidate.idleSince >= idleTimeoutMillis;
+    }
+
+    /**
+     * A real database connection together with its statement cache
+     */
+    private class PhysicalConnection {
+        private final Connection connection;
+        private final StatementCache statements;
+        private long idleSince;
+
+        PhysicalConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection, statementCacheSize, statementHits, statementMisses);
+        }
+
+        void close() {
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // the connection is being discarded either way
+            }
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection, except that close() hands it
+     * back to the pool once and prepareStatement goes through the statement cache
+     */
+    private class PooledConnection implements InvocationHandler {
+        private PhysicalConnection physical;
+
+        PooledConnection(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (physical != null) {
+                        PhysicalConnection returned = physical;
+                        physical = null;
+                        release(returned);
+                    }
+                    return null;
+                case "isClosed":
+                    return physical == null || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (physical == null ? null : physical.connection) + "]";
+                default:
+                    if (physical == null) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && isCacheable(args)) {
+                        int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : -1;
+                        return physical.statements.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                    }
+                    try {
+                        return method.invoke(physical.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        // prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys), for data statements
+        private boolean isCacheable(Object[] args) {
+            return statementCacheSize > 0 && (args.length == 1 || args.length == 2 && args[1] instanceof Integer)
+                    && StatementCache.isCacheable((String) args[0]);
+        }
+    }
+}
@@ -8,6 +8,11 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final int POOL_SIZE;
+    private static final long POOL_MAX_WAIT_MILLIS;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS;
+    private static final int STATEMENT_CACHE_SIZE;
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -26,7 +31,15 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // server-side statements make the pool's per-connection statement cache skip the parse step;
+                // cursor fetch lets statements with a fetch size read their results a batch at a time
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true&useCursorFetch=true",
+                        host, port);
+
+                POOL_SIZE = Integer.parseInt(props.getProperty("db.pool.size", "10"));
+                POOL_MAX_WAIT_MILLIS = Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000"));
+                POOL_IDLE_TIMEOUT_MILLIS = Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "300000"));
+                STATEMENT_CACHE_SIZE = Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32"));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -39,8 +52,8 @@ public class DatabaseManager {
     public static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -49,9 +62,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrows a connection from the pool, with the catalog set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * be short-lived, and you must close the connection when you are done with it
+     * so that it goes back to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -61,12 +75,33 @@ public class DatabaseManager {
      * </code>
      */
     public static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+        return getPool().getConnection();
+    }
+
+    /**
+     * Gets the shared connection pool, creating it on first use. The pool size,
+     * max wait, idle timeout and per-connection statement cache size can be set
+     * with the optional db.pool.size, db.pool.maxWaitMillis,
+     * db.pool.idleTimeoutMillis and db.pool.statementCacheSize properties.
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(() -> {
+                var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                conn.setCatalog(DATABASE_NAME);
+                return conn;
+            }, POOL_SIZE, POOL_MAX_WAIT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE);
+        }
+        return pool;
+    }
+
+    /**
+     * Closes the pooled connections. A later call to getConnection starts a new pool.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 
@@ -94,19 +129,106 @@ public class DatabaseManager {
                     whiteUsername VARCHAR(255) DEFAULT NULL,
                     blackUsername VARCHAR(255) DEFAULT NULL,
                     gameName VARCHAR(255) NOT NULL,
-                    chessGame TEXT(65000) DEFAULT NULL,
-                    PRIMARY KEY (gameID)
+                    chessGame BLOB DEFAULT NULL,
+                    plyCount INT NOT NULL DEFAULT 0,
+                    snapshotPly INT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (gameID),
+                    INDEX game_white_idx (whiteUsername, gameID),
+                    INDEX game_black_idx (blackUsername, gameID),
+                    INDEX game_name_idx (gameName, gameID)
                 )
                 """;
 
         try (var connection = getConnection();
              var preparedStatement = connection.prepareStatement(createTableSQL)) {
             preparedStatement.executeUpdate();
+            addColumnIfMissing(connection, "game", "plyCount", "INT NOT NULL DEFAULT 0");
+            addColumnIfMissing(connection, "game", "snapshotPly", "INT NOT NULL DEFAULT 0");
+            modifyColumnUnlessType(connection, "game", "chessGame", "BLOB", "BLOB DEFAULT NULL");
+            addIndexIfMissing(connection, "game", "game_white_idx", "whiteUsername, gameID");
+            addIndexIfMissing(connection, "game", "game_black_idx", "blackUsername, gameID");
+            addIndexIfMissing(connection, "game", "game_name_idx", "gameName, gameID");
         } catch (SQLException e) {
             throw new DataAccessException("Failed to create game table: " + e.getMessage());
         }
     }
 
+    /**
+     * Creates the append-only move log. chessGame in the game table holds the
+     * board as of snapshotPly, and each later move is a row here, stored as a
+     * {@link chess.PackedMove packed move}.
+     */
+    public static void createMoveTable() throws DataAccessException {
+        String createTableSQL = """
+                CREATE TABLE IF NOT EXISTS game_move (
+                    gameID INT NOT NULL,
+                    ply INT NOT NULL,
+                    move SMALLINT UNSIGNED NOT NULL,
+                    PRIMARY KEY (gameID, ply)
+                )
+                """;
+
+        try (var connection = getConnection();
+             var preparedStatement = connection.prepareStatement(createTableSQL)) {
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to create game_move table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Changes the type of a column left by an older version of the server. Games
+     * stored as JSON text keep their bytes, and SQLGameDAO still reads them.
+     */
+    private static void modifyColumnUnlessType(Connection connection, String table, String column, String typeName,
+                                               String definition) throws SQLException {
+        try (var columns = connection.getMetaData().getColumns(connection.getCatalog(), null, table, null)) {
+            while (columns.next()) {
+                if (columns.getString("COLUMN_NAME").equalsIgnoreCase(column)
+                        && !columns.getString("TYPE_NAME").equalsIgnoreCase(typeName)) {
+                    try (var statement = connection.createStatement()) {
+                        statement.executeUpdate("ALTER TABLE " + table + " MODIFY " + column + " " + definition);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a column to a table created by an older version of the server
+     */
+    private static void addColumnIfMissing(Connection connection, String table, String column, String definition)
+            throws SQLException {
+        try (var columns = connection.getMetaData().getColumns(connection.getCatalog(), null, table, null)) {
+            while (columns.next()) {
+                if (columns.getString("COLUMN_NAME").equalsIgnoreCase(column)) {
+                    return;
+                }
+            }
+        }
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Adds an index to a table created by an older version of the server
+     */
+    private static void addIndexIfMissing(Connection connection, String table, String index, String columns)
+            throws SQLException {
+        try (var indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+    }
+
     public static void createUserTable() throws DataAccessException {
         String createTableSQL = """
                 CREATE TABLE if NOT EXISTS user (
@@ -1,16 +1,29 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.DataAccessException;
 import model.GameData;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GameDAO {
-  private final HashMap<Integer, GameData> games = new HashMap<>();
+
+  /**
+   * Receives games one at a time as they are read
+   */
+  @FunctionalInterface
+  public interface GameSink {
+    void accept(GameData game) throws DataAccessException;
+  }
+
+  private final ConcurrentHashMap<Integer, GameData> games = new ConcurrentHashMap<>();
   private AtomicInteger gameIdGenerator = new AtomicInteger(0);
 
   public Integer createGame(String gameName) throws DataAccessException {
@@ -27,8 +40,58 @@ public class GameDAO {
   }
 
   public Collection<GameData> listGames() throws DataAccessException {
-    var name = games.values().toArray(new GameData[0]);
-    return games.values();
+    return listGames(GameQuery.ALL);
+  }
+
+  /**
+   * Lists the games the query selects, in gameID order
+   */
+  public Collection<GameData> listGames(GameQuery query) throws DataAccessException {
+    List<GameData> page = new ArrayList<>();
+    forEachGame(query, page::add);
+    return page;
+  }
+
+  public Collection<GameData> listGameSummaries() throws DataAccessException {
+    return listGameSummaries(GameQuery.ALL);
+  }
+
+  /**
+   * Lists the games the query selects without their boards. The games returned
+   * hold a null game, so only their IDs, names and players are filled in.
+   */
+  public Collection<GameData> listGameSummaries(GameQuery query) throws DataAccessException {
+    List<GameData> page = new ArrayList<>();
+    forEachGameSummary(query, page::add);
+    return page;
+  }
+
+  /**
+   * Hands each game the query selects to the sink in gameID order, without
+   * collecting them first
+   */
+  public void forEachGame(GameQuery query, GameSink sink) throws DataAccessException {
+    int count = 0;
+    for (GameData game : new TreeMap<>(games).values()) {
+      if (query.limit() != null && count >= query.limit()) {
+        break;
+      }
+      if (query.matches(game)) {
+        sink.accept(game);
+        count++;
+      }
+    }
+  }
+
+  /**
+   * Like {@link #forEachGame}, but each game is handed over without its board
+   */
+  public void forEachGameSummary(GameQuery query, GameSink sink) throws DataAccessException {
+    forEachGame(query, game -> sink.accept(summarize(game)));
+  }
+
+  protected static GameData summarize(GameData game) {
+    return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), null);
   }
 
   public void updateGame(GameData game) throws DataAccessException {
@@ -41,7 +104,65 @@ public class GameDAO {
     games.put(game.gameID(), game);
   }
 
+  /**
+   * Stores the game's players and name, leaving its board as it is, so a caller
+   * holding an older board cannot put it back over moves played since
+   */
+  public void updatePlayers(GameData game) throws DataAccessException {
+    if (game == null) {
+      throw new DataAccessException("Game data cannot be null");
+    }
+    GameData updated = games.computeIfPresent(game.gameID(), (id, stored) ->
+        new GameData(id, game.whiteUsername(), game.blackUsername(), game.gameName(), stored.game()));
+    if (updated == null) {
+      throw new DataAccessException("Game not found");
+    }
+  }
+
+  /**
+   * Seats the user as the given color, provided the seat is empty or already
+   * theirs. The check and the write happen as one step, so of two users
+   * joining at once only one gets the seat.
+   *
+   * @return whether the user now holds the seat
+   */
+  public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+    boolean[] claimed = {false};
+    GameData updated = games.computeIfPresent(gameID, (id, game) -> {
+      String holder = color == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+      if (holder != null && !holder.equals(username)) {
+        return game;
+      }
+      claimed[0] = true;
+      return seated(game, color, username);
+    });
+    if (updated == null) {
+      throw new DataAccessException("Game not found");
+    }
+    return claimed[0];
+  }
+
+  protected static GameData seated(GameData game, ChessGame.TeamColor color, String username) {
+    return color == ChessGame.TeamColor.WHITE
+        ? new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game())
+        : new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
+  }
+
+  /**
+   * Records a move that has just been played, along with the game it left behind
+   */
+  public void recordMove(GameData game, ChessMove move) throws DataAccessException {
+    updateGame(game);
+  }
+
   public void deleteGames() throws DataAccessException {
     games.clear();
   }
+
+  /**
+   * Writes out anything the DAO is still holding back and stops its background
+   * work. Games kept in memory have nothing to write.
+   */
+  public void close() throws DataAccessException {
+  }
 }
\ No newline at end of file
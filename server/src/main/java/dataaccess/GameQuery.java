@@ -0,0 +1,25 @@
+package dataaccess;
+
+import model.GameData;
+
+/**
+ * Selects one page of games, in gameID order. Pages are keyed on gameID: the
+ * next page starts after the last gameID of the one before, so a page costs
+ * the same however deep into the listing it is.
+ *
+ * @param afterGameID only list games with a greater ID, or null to start from the first game
+ * @param limit       the most games to list, or null for no limit
+ * @param openSeat    only list games with at least one seat free
+ * @param player      only list games this user plays in, or null for any
+ * @param namePrefix  only list games whose name starts with this, or null for any
+ */
+public record GameQuery(Integer afterGameID, Integer limit, boolean openSeat, String player, String namePrefix) {
+  public static final GameQuery ALL = new GameQuery(null, null, false, null, null);
+
+  public boolean matches(GameData game) {
+    return (afterGameID == null || game.gameID() > afterGameID)
+            && (!openSeat || game.whiteUsername() == null || game.blackUsername() == null)
+            && (player == null || player.equals(game.whiteUsername()) || player.equals(game.blackUsername()))
+            && (namePrefix == null || game.gameName().startsWith(namePrefix));
+  }
+}
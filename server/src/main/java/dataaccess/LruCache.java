@@ -0,0 +1,95 @@
+package dataaccess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread-safe cache that evicts the least recently used entry once it
+ * is full. Every entry also expires after its own time to live.
+ */
+public class LruCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final long defaultTtlMillis;
+    private final LongSupplier clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize          the most entries to keep
+     * @param defaultTtlMillis how long entries added with {@link #put(Object, Object)} live
+     */
+    public LruCache(int maxSize, long defaultTtlMillis) {
+        this(maxSize, defaultTtlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock supplies the current time in milliseconds
+     */
+    public LruCache(int maxSize, long defaultTtlMillis, LongSupplier clock) {
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if there is none or it has expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - clock.getAsLong() > 0) {
+            hits.incrementAndGet();
+            return entry.value();
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtlMillis);
+    }
+
+    /**
+     * Caches a value that expires after the given time instead of the default
+     */
+    public synchronized void put(K key, V value, long ttlMillis) {
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of entries held, including any that have expired but
+     * not yet been looked up
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
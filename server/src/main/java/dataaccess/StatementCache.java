@@ -0,0 +1,198 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements kept open on one physical connection, keyed by SQL text
+ * and evicted least recently used first.
+ * <p>
+ * A pooled connection is only used by one thread at a time, so the cache is not
+ * synchronized. Statements handed out are removed from the cache until the
+ * caller closes them, so the same SQL prepared twice at once gets two statements.
+ */
+class StatementCache {
+
+    private record Key(String sql, int autoGeneratedKeys) {
+    }
+
+    /**
+     * A statement together with the settings it was prepared with, which it gets
+     * back each time it is returned
+     */
+    private record Prepared(PreparedStatement statement, int fetchSize, int maxRows, int queryTimeout) {
+        static Prepared of(PreparedStatement statement) throws SQLException {
+            return new Prepared(statement, statement.getFetchSize(), statement.getMaxRows(),
+                    statement.getQueryTimeout());
+        }
+    }
+
+    private final Connection connection;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<Key, Prepared> statements;
+
+    /**
+     * @param connection the physical connection to prepare statements on
+     * @param maxSize    the most idle statements to keep
+     * @param hits       counts statements served from the cache
+     * @param misses     counts statements that had to be prepared
+     */
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.connection = connection;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Prepared> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue().statement());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a statement for the SQL, reusing a cached one when possible. Closing
+     * the returned statement puts it back in the cache.
+     *
+     * @param owner             the connection handed to the caller, returned by getConnection
+     * @param sql               the statement text
+     * @param autoGeneratedKeys a {@link Statement} generated keys flag, or -1 for none
+     */
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Prepared prepared = statements.remove(key);
+        if (prepared != null && !prepared.statement().isClosed()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            prepared = Prepared.of(autoGeneratedKeys < 0 ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, autoGeneratedKeys));
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new CachedStatement(owner, key, prepared));
+    }
+
+    /**
+     * Only data statements are worth keeping. Schema changes and truncates run
+     * once in a while and would push the hot statements out.
+     */
+    static boolean isCacheable(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return switch (trimmed.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE", "WITH" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Puts the statement back as it was prepared, so settings and batches from
+     * one borrower do not leak into the next
+     */
+    private void release(Key key, Prepared prepared) {
+        PreparedStatement statement = prepared.statement();
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            // max rows first, since some drivers reject a fetch size above it
+            statement.setMaxRows(prepared.maxRows());
+            statement.setFetchSize(prepared.fetchSize());
+            statement.setQueryTimeout(prepared.queryTimeout());
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        Prepared replaced = statements.put(key, prepared);
+        if (replaced != null) {
+            closeQuietly(replaced.statement());
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    void clear() {
+        for (Prepared prepared : statements.values()) {
+            closeQuietly(prepared.statement());
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // the statement is being discarded either way
+        }
+    }
+
+    /**
+     * Forwards calls to the real statement, except that close() returns it to the
+     * cache once
+     */
+    private class CachedStatement implements InvocationHandler {
+        private final Connection owner;
+        private final Key key;
+        private Prepared prepared;
+
+        CachedStatement(Connection owner, Key key, Prepared prepared) {
+            this.owner = owner;
+            this.key = key;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (prepared != null) {
+                        Prepared returned = prepared;
+                        prepared = null;
+                        release(key, returned);
+                    }
+                    return null;
+                case "isClosed":
+                    return prepared == null || prepared.statement().isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + key.sql() + "]";
+                default:
+                    if (prepared == null) {
+                        throw new SQLException("Statement has been closed");
+                    }
+                    try {
+                        return method.invoke(prepared.statement(), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
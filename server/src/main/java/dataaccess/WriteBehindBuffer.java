@@ -0,0 +1,159 @@
+package dataaccess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Buffers writes in memory and hands them to a {@link BatchWriter} from a
+ * background thread.
+ * <p>
+ * Repeated writes to the same key are coalesced, so only the latest value is
+ * written. Pending values can be read back with {@link #get}, which makes the
+ * buffer the authoritative copy until it has been flushed. A value is only
+ * dropped from the buffer once it has been written and has not been replaced
+ * in the meantime; if the writer fails, the values stay and are retried on the
+ * next flush.
+ */
+public final class WriteBehindBuffer<K, V> implements AutoCloseable {
+
+    /**
+     * Writes a batch of pending values to the backing store
+     */
+    @FunctionalInterface
+    public interface BatchWriter<K, V> {
+        void write(Map<K, V> batch) throws DataAccessException;
+    }
+
+    /**
+     * An action against the backing store that must not overlap a flush
+     */
+    @FunctionalInterface
+    public interface StoreAction {
+        void run() throws DataAccessException;
+    }
+
+    private final BatchWriter<K, V> writer;
+    private final ConcurrentHashMap<K, V> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param name                names the flusher thread
+     * @param writer              writes each batch
+     * @param flushIntervalMillis the longest a value waits before a flush is attempted
+     */
+    public WriteBehindBuffer(String name, BatchWriter<K, V> writer, long flushIntervalMillis) {
+        this.writer = writer;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers a value, replacing any pending value for the same key
+     */
+    public void put(K key, V value) {
+        pending.put(key, value);
+    }
+
+    /**
+     * Buffers a value, combining it with any pending value for the same key. The
+     * writer must accept combined values that repeat parts of an earlier batch,
+     * since a value combined during a flush is written again in full.
+     *
+     * @param combine combines the pending value with the new one, in that order
+     */
+    public void merge(K key, V value, BinaryOperator<V> combine) {
+        pending.merge(key, value, combine);
+    }
+
+    /**
+     * Changes the pending value for the key, if there is one. The changed value
+     * is written on the next flush even if a flush is under way.
+     */
+    public void update(K key, UnaryOperator<V> change) {
+        pending.computeIfPresent(key, (k, value) -> change.apply(value));
+    }
+
+    /**
+     * @return the pending value for the key, or null if nothing is waiting to be written
+     */
+    public V get(K key) {
+        return pending.get(key);
+    }
+
+    /**
+     * @return a copy of every pending value
+     */
+    public Map<K, V> pending() {
+        return new LinkedHashMap<>(pending);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Writes every pending value now, on the calling thread
+     *
+     * @throws DataAccessException if the writer fails; the values stay buffered
+     */
+    public void flush() throws DataAccessException {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<K, V> batch = pending();
+            writer.write(batch);
+            for (Map.Entry<K, V> entry : batch.entrySet()) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops every pending value without writing it, then runs the given action.
+     * Waits for a flush in progress to finish first, so nothing buffered before
+     * the call can be written after the action.
+     *
+     * @param action clears the backing store, for example
+     */
+    public void clear(StoreAction action) throws DataAccessException {
+        synchronized (flushLock) {
+            pending.clear();
+            action.run();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException | RuntimeException e) {
+            System.out.println("Write-behind flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes whatever is still pending
+     */
+    @Override
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
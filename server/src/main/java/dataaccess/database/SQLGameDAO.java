@@ -1,21 +1,156 @@
 package dataaccess.database;
 
 import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dataaccess.WriteBehindBuffer;
 import model.GameData;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
+/**
+ * Stores games as a board snapshot, encoded with {@link ChessGameCodec}, plus an
+ * append-only log of the moves played since. Each move is one small game_move
+ * row keyed by (gameID, ply), and the full board is only rewritten every
+ * {@link #SNAPSHOT_INTERVAL} plies or when updateGame is called directly.
+ * getGame replays the logged moves on top of the latest snapshot. Players are
+ * only written by updateGame and updatePlayers, so a move recorded from an
+ * older read of the game does not put back the players it was read with.
+ */
 public class SQLGameDAO extends GameDAO {
+  /**
+   * How many plies may be logged past the last snapshot before a new one is taken
+   */
+  public static final int SNAPSHOT_INTERVAL=20;
 
+  private static final String INSERT_MOVE_SQL="INSERT INTO game_move (gameID, ply, move) VALUES (?, ?, ?)";
+  private static final String UPDATE_PLY_SQL="UPDATE game SET plyCount=GREATEST(plyCount, ?) WHERE gameID=?";
+  private static final String UPDATE_PLAYERS_SQL="UPDATE game SET whiteUsername=?, blackUsername=?, gameName=? WHERE gameID=?";
+  private static final String CLAIM_WHITE_SQL=
+          "UPDATE game SET whiteUsername=? WHERE gameID=? AND (whiteUsername IS NULL OR whiteUsername=?)";
+  private static final String CLAIM_BLACK_SQL=
+          "UPDATE game SET blackUsername=? WHERE gameID=? AND (blackUsername IS NULL OR blackUsername=?)";
+  private static final String REPLACE_GAME_SQL="UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?,"
+          + " chessGame=?, snapshotPly=plyCount WHERE gameID=? AND plyCount=?";
+  private static final String UPDATE_SNAPSHOT_SQL=
+          "UPDATE game SET chessGame=?, snapshotPly=? WHERE gameID=? AND snapshotPly <= ?";
+  /**
+   * How many rows a listing asks the driver for at a time
+   */
+  private static final int STREAM_FETCH_SIZE=100;
+
+  private record LoggedMove(int ply, int move) {
+  }
+
+  /**
+   * Where a game's log stands: the number of plies played and the ply its
+   * stored snapshot was taken at
+   */
+  private record LogPosition(int plyCount, int snapshotPly) {
+
+    /**
+     * @return whichever position is further along
+     */
+    static LogPosition later(LogPosition a, LogPosition b) {
+      if (a.plyCount != b.plyCount) {
+        return a.plyCount > b.plyCount ? a : b;
+      }
+      return a.snapshotPly >= b.snapshotPly ? a : b;
+    }
+  }
+
+  /**
+   * Changes to one game waiting to be written: moves to append, the ply count,
+   * the players when they were changed, and a new snapshot when one is due. The
+   * game is kept without its board, and the board is kept encoded as of the
+   * change, so neither the flusher nor a reader ever shares a ChessGame that
+   * someone else may be moving on.
+   */
+  private record PendingUpdate(GameData game, boolean playersChanged, byte[] board, List<LoggedMove> moves,
+                               int plyCount, byte[] snapshot, int snapshotPly) {
+
+    static PendingUpdate of(GameData game, boolean playersChanged, List<LoggedMove> moves, int plyCount,
+                            byte[] snapshot, int snapshotPly) {
+      byte[] board=snapshot;
+      if (board == null && game.game() != null) {
+        board=ChessGameCodec.encode(game.game());
+      }
+      return new PendingUpdate(summarize(game), playersChanged, board, moves, plyCount, snapshot, snapshotPly);
+    }
+
+    /**
+     * Combines this update with a newer one. Players set by either are kept
+     * over the ones a move was read with.
+     */
+    PendingUpdate merge(PendingUpdate newer) {
+      List<LoggedMove> allMoves=new ArrayList<>(moves);
+      allMoves.addAll(newer.moves);
+      GameData players=newer.playersChanged || !playersChanged ? newer.game : game;
+      boolean changed=playersChanged || newer.playersChanged;
+      return newer.snapshot != null
+              ? new PendingUpdate(players, changed, newer.board, allMoves, newer.plyCount, newer.snapshot,
+                      newer.snapshotPly)
+              : new PendingUpdate(players, changed, newer.board, allMoves, newer.plyCount, snapshot, snapshotPly);
+    }
+
+    /**
+     * @return this update with the game's players and name replaced
+     */
+    PendingUpdate withPlayers(GameData players) {
+      return new PendingUpdate(summarize(players), true, board, moves, plyCount, snapshot, snapshotPly);
+    }
+
+    /**
+     * @return the game as of this change, with a board of its own
+     */
+    GameData copy() {
+      ChessGame chessGame=board == null ? null : ChessGameCodec.decode(board);
+      return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
+    }
+  }
+
+  private final ConcurrentHashMap<Integer, LogPosition> logPositions=new ConcurrentHashMap<>();
+  /**
+   * The last ply of each game's log that a write-behind flush has stored
+   */
+  private final ConcurrentHashMap<Integer, Integer> flushedPlies=new ConcurrentHashMap<>();
+  private final WriteBehindBuffer<Integer, PendingUpdate> writeBehind;
+
+  /**
+   * Creates a DAO that writes every update straight to the database
+   */
   public SQLGameDAO() throws DataAccessException {
     DatabaseManager.createDatabase();
     DatabaseManager.createGameTable();
+    DatabaseManager.createMoveTable();
+    writeBehind=null;
+  }
+
+  /**
+   * Creates a DAO in write-behind mode: updateGame and recordMove only buffer the
+   * change, and a background thread writes the buffered changes in one batch at
+   * most flushIntervalMillis later. Call {@link #close()} to write out what is
+   * left.
+   */
+  public SQLGameDAO(long flushIntervalMillis) throws DataAccessException {
+    DatabaseManager.createDatabase();
+    DatabaseManager.createGameTable();
+    DatabaseManager.createMoveTable();
+    writeBehind=new WriteBehindBuffer<>("game-write-behind", this::writeBatch, flushIntervalMillis);
   }
 
   @Override
@@ -25,19 +160,20 @@ public class SQLGameDAO extends GameDAO {
     }
     String insertSQL="INSERT INTO game (whiteUsername, blackUsername, gameName, chessGame) VALUES (?, ?, ?, ?)";
     ChessGame newChess=new ChessGame();
-    String jString=new Gson().toJson(newChess);
 
     try (Connection connection=DatabaseManager.getConnection();
          PreparedStatement preparedStatement=connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
       preparedStatement.setNull(1, Types.VARCHAR); // whiteUsername
       preparedStatement.setNull(2, Types.VARCHAR); // blackUsername
       preparedStatement.setString(3, gameName);
-      preparedStatement.setString(4, jString);
+      preparedStatement.setBytes(4, ChessGameCodec.encode(newChess));
       preparedStatement.executeUpdate();
 
       try (ResultSet generatedKeys=preparedStatement.getGeneratedKeys()) {
         if (generatedKeys.next()) {
-          return generatedKeys.getInt(1);
+          int gameID=generatedKeys.getInt(1);
+          logPositions.put(gameID, new LogPosition(0, 0));
+          return gameID;
         } else {
           throw new DataAccessException("Failed to create game, no ID obtained.");
         }
@@ -47,79 +183,477 @@ public class SQLGameDAO extends GameDAO {
     }
   }
 
+  /**
+   * Stores the whole game, taking its board as a fresh snapshot at the ply the
+   * game is at. The board is only written if no move has been logged since the
+   * DAO last saw the game's ply, so a board read before a move cannot be
+   * stored as the board after it; the update fails instead. A game without a
+   * board only has its players stored. In write-behind mode the update is
+   * ordered against this DAO's other writes to the game when it is buffered.
+   */
   @Override
   public void updateGame(GameData game) throws DataAccessException {
     if (game == null) {
       throw new DataAccessException("Error: bad request");
     }
-    String updateSQL="UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, chessGame=? WHERE gameID=?";
+    if (game.game() == null) {
+      updatePlayers(game);
+      return;
+    }
+    if (writeBehind != null) {
+      write(game.gameID(), current -> new LogPosition(current.plyCount(), current.plyCount()),
+              position -> PendingUpdate.of(game, true, List.of(), position.plyCount(),
+                      ChessGameCodec.encode(game.game()), position.plyCount()));
+      return;
+    }
+
+    int gameID=game.gameID();
+    int expectedPly=logPosition(gameID).plyCount();
     try (Connection connection=DatabaseManager.getConnection();
-         PreparedStatement preparedStatement=connection.prepareStatement(updateSQL)) {
+         PreparedStatement preparedStatement=connection.prepareStatement(REPLACE_GAME_SQL)) {
       preparedStatement.setString(1, game.whiteUsername());
       preparedStatement.setString(2, game.blackUsername());
       preparedStatement.setString(3, game.gameName());
-      preparedStatement.setString(4, new Gson().toJson(game.game()));
-      preparedStatement.setInt(5, game.gameID());
-      preparedStatement.executeUpdate();
+      preparedStatement.setBytes(4, ChessGameCodec.encode(game.game()));
+      preparedStatement.setInt(5, gameID);
+      preparedStatement.setInt(6, expectedPly);
+      if (preparedStatement.executeUpdate() == 0) {
+        logPositions.remove(gameID);
+        throw new DataAccessException("Error: game " + gameID + " is no longer at ply " + expectedPly);
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException(e.getMessage());
+    }
+    logPositions.merge(gameID, new LogPosition(expectedPly, expectedPly), LogPosition::later);
+  }
+
+  /**
+   * Stores the game's players and name alone, leaving its board, ply count and
+   * snapshot as they are. This is written straight to the game row even in
+   * write-behind mode, and a change still buffered for the game takes the new
+   * players with it.
+   */
+  @Override
+  public void updatePlayers(GameData game) throws DataAccessException {
+    if (game == null) {
+      throw new DataAccessException("Error: bad request");
+    }
+    try (Connection connection=DatabaseManager.getConnection();
+         PreparedStatement preparedStatement=connection.prepareStatement(UPDATE_PLAYERS_SQL)) {
+      preparedStatement.setString(1, game.whiteUsername());
+      preparedStatement.setString(2, game.blackUsername());
+      preparedStatement.setString(3, game.gameName());
+      preparedStatement.setInt(4, game.gameID());
+      if (preparedStatement.executeUpdate() == 0) {
+        throw new DataAccessException("Error: game not found");
+      }
     } catch (SQLException e) {
       throw new DataAccessException(e.getMessage());
     }
+    if (writeBehind != null) {
+      writeBehind.update(game.gameID(), pending -> pending.withPlayers(game));
+    }
+  }
+
+  /**
+   * Seats the user with a conditional update of the game row, so the database
+   * decides which of two joins at once gets the seat. In write-behind mode the
+   * buffer is flushed first, so players it still holds are checked too.
+   */
+  @Override
+  public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
+    String claimSQL=color == ChessGame.TeamColor.WHITE ? CLAIM_WHITE_SQL : CLAIM_BLACK_SQL;
+    try (Connection connection=DatabaseManager.getConnection();
+         PreparedStatement preparedStatement=connection.prepareStatement(claimSQL)) {
+      preparedStatement.setString(1, username);
+      preparedStatement.setInt(2, gameID);
+      preparedStatement.setString(3, username);
+      if (preparedStatement.executeUpdate() == 0) {
+        return false;
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException(e.getMessage());
+    }
+    if (writeBehind != null) {
+      writeBehind.update(gameID, pending -> pending.withPlayers(seated(pending.game(), color, username)));
+    }
+    return true;
+  }
+
+  /**
+   * Appends the move to the game's log, and takes a new snapshot once
+   * {@link #SNAPSHOT_INTERVAL} plies have been logged since the last one
+   */
+  @Override
+  public void recordMove(GameData game, ChessMove move) throws DataAccessException {
+    if (game == null || move == null) {
+      throw new DataAccessException("Error: bad request");
+    }
+    write(game.gameID(), current -> {
+      int ply=current.plyCount() + 1;
+      return new LogPosition(ply, ply - current.snapshotPly() >= SNAPSHOT_INTERVAL ? ply : current.snapshotPly());
+    }, position -> {
+      int ply=position.plyCount();
+      List<LoggedMove> moves=List.of(new LoggedMove(ply, PackedMove.pack(move)));
+      byte[] snapshot=position.snapshotPly() == ply ? ChessGameCodec.encode(game.game()) : null;
+      return PendingUpdate.of(game, false, moves, ply, snapshot, position.snapshotPly());
+    });
+  }
+
+  /**
+   * Moves the game's log position on by one step and writes the change made at
+   * the new position. In write-behind mode the change is buffered in the same
+   * step, so the changes to one game reach the buffer in ply order.
+   */
+  private void write(int gameID, UnaryOperator<LogPosition> step, Function<LogPosition, PendingUpdate> change)
+          throws DataAccessException {
+    LogPosition loaded=logPosition(gameID);
+    if (writeBehind != null) {
+      logPositions.compute(gameID, (id, current) -> {
+        LogPosition position=step.apply(current != null ? current : loaded);
+        writeBehind.merge(gameID, change.apply(position), PendingUpdate::merge);
+        return position;
+      });
+    } else {
+      LogPosition position=logPositions.compute(gameID,
+              (id, current) -> step.apply(current != null ? current : loaded));
+      writeBatch(Map.of(gameID, change.apply(position)));
+    }
+  }
+
+  private LogPosition logPosition(int gameID) throws DataAccessException {
+    LogPosition position=logPositions.get(gameID);
+    if (position != null) {
+      return position;
+    }
+    String selectSQL="SELECT plyCount, snapshotPly FROM game WHERE gameID=?";
+    try (Connection connection=DatabaseManager.getConnection();
+         PreparedStatement preparedStatement=connection.prepareStatement(selectSQL)) {
+      preparedStatement.setInt(1, gameID);
+      try (ResultSet resultSet=preparedStatement.executeQuery()) {
+        position=resultSet.next()
+                ? new LogPosition(resultSet.getInt("plyCount"), resultSet.getInt("snapshotPly"))
+                : new LogPosition(0, 0);
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException(e.getMessage());
+    }
+    return logPositions.merge(gameID, position, LogPosition::later);
+  }
+
+  /**
+   * Writes pending changes in one transaction: the logged moves, then the game
+   * rows' ply counts and changed players, then any new snapshots. A ply that is already logged fails the
+   * insert rather than being overwritten, so a flush skips the moves an earlier
+   * flush stored; the write-behind buffer hands those over again when a game
+   * changed while it was being written. The ply count and snapshot never move
+   * back, whatever order two writes to the same game commit in.
+   */
+  private void writeBatch(Map<Integer, PendingUpdate> batch) throws DataAccessException {
+    try (Connection connection=DatabaseManager.getConnection();
+         PreparedStatement insertMove=connection.prepareStatement(INSERT_MOVE_SQL);
+         PreparedStatement updatePly=connection.prepareStatement(UPDATE_PLY_SQL);
+         PreparedStatement updatePlayers=connection.prepareStatement(UPDATE_PLAYERS_SQL);
+         PreparedStatement updateSnapshot=connection.prepareStatement(UPDATE_SNAPSHOT_SQL)) {
+      connection.setAutoCommit(false);
+      boolean hasMoves=false;
+      boolean hasPlayers=false;
+      boolean hasSnapshots=false;
+      for (PendingUpdate update : batch.values()) {
+        GameData game=update.game();
+        int flushedPly=writeBehind == null ? 0 : flushedPlies.getOrDefault(game.gameID(), 0);
+        for (LoggedMove move : update.moves()) {
+          if (move.ply() <= flushedPly) {
+            continue;
+          }
+          insertMove.setInt(1, game.gameID());
+          insertMove.setInt(2, move.ply());
+          insertMove.setInt(3, move.move());
+          insertMove.addBatch();
+          hasMoves=true;
+        }
+        updatePly.setInt(1, update.plyCount());
+        updatePly.setInt(2, game.gameID());
+        updatePly.addBatch();
+        if (update.playersChanged()) {
+          updatePlayers.setString(1, game.whiteUsername());
+          updatePlayers.setString(2, game.blackUsername());
+          updatePlayers.setString(3, game.gameName());
+          updatePlayers.setInt(4, game.gameID());
+          updatePlayers.addBatch();
+          hasPlayers=true;
+        }
+        if (update.snapshot() != null) {
+          updateSnapshot.setBytes(1, update.snapshot());
+          updateSnapshot.setInt(2, update.snapshotPly());
+          updateSnapshot.setInt(3, game.gameID());
+          updateSnapshot.setInt(4, update.snapshotPly());
+          updateSnapshot.addBatch();
+          hasSnapshots=true;
+        }
+      }
+      if (hasMoves) {
+        insertMove.executeBatch();
+      }
+      updatePly.executeBatch();
+      if (hasPlayers) {
+        updatePlayers.executeBatch();
+      }
+      if (hasSnapshots) {
+        updateSnapshot.executeBatch();
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      throw new DataAccessException(e.getMessage());
+    }
+    if (writeBehind != null) {
+      for (PendingUpdate update : batch.values()) {
+        flushedPlies.merge(update.game().gameID(), update.plyCount(), Math::max);
+      }
+    }
   }
 
   @Override
   public void deleteGames() throws DataAccessException {
-    String deleteSQL="TRUNCATE TABLE game";
+    if (writeBehind != null) {
+      writeBehind.clear(this::truncateGames);
+    } else {
+      truncateGames();
+    }
+  }
+
+  private void truncateGames() throws DataAccessException {
     try (Connection connection=DatabaseManager.getConnection();
-         PreparedStatement preparedStatement=connection.prepareStatement(deleteSQL)) {
-      preparedStatement.executeUpdate();
+         PreparedStatement deleteMoves=connection.prepareStatement("TRUNCATE TABLE game_move");
+         PreparedStatement deleteGames=connection.prepareStatement("TRUNCATE TABLE game")) {
+      deleteMoves.executeUpdate();
+      deleteGames.executeUpdate();
+      logPositions.clear();
+      flushedPlies.clear();
     } catch (SQLException e) {
       throw new DataAccessException(e.getMessage());
     }
   }
 
+  @Override
+  public void close() throws DataAccessException {
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
+  }
+
   @Override
   public GameData getGame(int gameID) throws DataAccessException {
-    String selectSQL="SELECT gameID, whiteUsername, blackUsername, gameName, chessGame FROM game WHERE gameID=?";
+    if (writeBehind != null) {
+      PendingUpdate pending=writeBehind.get(gameID);
+      if (pending != null) {
+        return pending.copy();
+      }
+    }
+    String selectSQL=
+            "SELECT gameID, whiteUsername, blackUsername, gameName, chessGame, plyCount, snapshotPly FROM game WHERE gameID=?";
+    String movesSQL="SELECT move FROM game_move WHERE gameID=? AND ply > ? AND ply <= ? ORDER BY ply";
     try (Connection connection=DatabaseManager.getConnection();
          PreparedStatement preparedStatement=connection.prepareStatement(selectSQL)) {
       preparedStatement.setInt(1, gameID);
+      GameData game;
+      LogPosition position;
       try (ResultSet resultSet=preparedStatement.executeQuery()) {
-        if (resultSet.next()) {
-          int newGameID=resultSet.getInt("gameID");
-          String whiteUsername=resultSet.getString("whiteUsername");
-          String blackUsername=resultSet.getString("blackUsername");
-          String gameName=resultSet.getString("gameName");
-          String jString=resultSet.getString("chessGame");
-          ChessGame chessGame=new Gson().fromJson(jString, ChessGame.class);
-          return new GameData(newGameID, whiteUsername, blackUsername, gameName, chessGame);
-        } else {
+        if (!resultSet.next()) {
           return null;
         }
+        game=readGame(resultSet);
+        position=new LogPosition(resultSet.getInt("plyCount"), resultSet.getInt("snapshotPly"));
+        logPositions.merge(gameID, position, LogPosition::later);
+      }
+
+      try (PreparedStatement moveStatement=connection.prepareStatement(movesSQL)) {
+        moveStatement.setInt(1, gameID);
+        moveStatement.setInt(2, position.snapshotPly());
+        moveStatement.setInt(3, position.plyCount());
+        try (ResultSet moves=moveStatement.executeQuery()) {
+          while (moves.next()) {
+            replay(game, moves.getInt("move"));
+          }
+        }
       }
+      return game;
     } catch (SQLException e) {
       throw new DataAccessException(e.getMessage());
     }
   }
 
+  /**
+   * Streams the page of games row by row. The move logs of the games on the
+   * page are read alongside in the same order and replayed as each game goes
+   * by, so no more than one game is held at a time. Both reads run in one
+   * read-only repeatable-read transaction, so every game is replayed from the
+   * snapshot its own row was read with. A game with a change waiting in the
+   * write-behind buffer is not decoded or replayed; the change is returned
+   * in its place.
+   */
   @Override
-  public Collection<GameData> listGames() throws DataAccessException {
-    Collection<GameData> games=new ArrayList<>();
-    String selectSQL="SELECT gameID, whiteUsername, blackUsername, gameName, chessGame FROM game";
+  public void forEachGame(GameQuery query, GameSink sink) throws DataAccessException {
+    Map<Integer, PendingUpdate> pending=pendingUpdates();
+    String gamesSQL=pageSQL("gameID, whiteUsername, blackUsername, gameName, chessGame", query);
+    String movesSQL="SELECT m.gameID, m.move FROM game_move m JOIN game g ON m.gameID = g.gameID"
+            + " JOIN (" + pageSQL("gameID", query) + ") p ON p.gameID = m.gameID"
+            + " WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply";
+    try (Connection connection=DatabaseManager.getConnection()) {
+      int isolation=connection.getTransactionIsolation();
+      connection.setReadOnly(true);
+      connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      connection.setAutoCommit(false);
+      try (PreparedStatement gameStatement=connection.prepareStatement(gamesSQL);
+           PreparedStatement moveStatement=connection.prepareStatement(movesSQL)) {
+        bindPage(gameStatement, query);
+        bindPage(moveStatement, query);
+        gameStatement.setFetchSize(STREAM_FETCH_SIZE);
+        moveStatement.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet games=gameStatement.executeQuery();
+             ResultSet moves=moveStatement.executeQuery()) {
+          boolean hasMove=moves.next();
+          while (games.next()) {
+            int gameID=games.getInt("gameID");
+            PendingUpdate update=pending.get(gameID);
+            int skipThrough=update != null ? gameID : gameID - 1;
+            while (hasMove && moves.getInt("gameID") <= skipThrough) {
+              hasMove=moves.next();
+            }
+            if (update != null) {
+              sink.accept(update.copy());
+              continue;
+            }
+            GameData game=readGame(games);
+            while (hasMove && moves.getInt("gameID") == gameID) {
+              replay(game, moves.getInt("move"));
+              hasMove=moves.next();
+            }
+            sink.accept(game);
+          }
+        }
+        connection.commit();
+      } finally {
+        connection.setAutoCommit(true);
+        connection.setReadOnly(false);
+        connection.setTransactionIsolation(isolation);
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException(e.getMessage());
+    }
+  }
+
+  /**
+   * Streams the page of games from their rows alone, without reading their
+   * snapshots or move logs
+   */
+  @Override
+  public void forEachGameSummary(GameQuery query, GameSink sink) throws DataAccessException {
+    Map<Integer, PendingUpdate> pending=pendingUpdates();
     try (Connection connection=DatabaseManager.getConnection();
-         PreparedStatement preparedStatement=connection.prepareStatement(selectSQL);
-         ResultSet resultSet=preparedStatement.executeQuery()) {
-      while (resultSet.next()) {
-        int newGameID=resultSet.getInt("gameID");
-        String whiteUsername=resultSet.getString("whiteUsername");
-        String blackUsername=resultSet.getString("blackUsername");
-        String gameName=resultSet.getString("gameName");
-        String jString=resultSet.getString("chessGame");
-        ChessGame chessGame=new Gson().fromJson(jString, ChessGame.class);
-        games.add(new GameData(newGameID, whiteUsername, blackUsername, gameName, chessGame));
+         PreparedStatement preparedStatement=connection.prepareStatement(
+                 pageSQL("gameID, whiteUsername, blackUsername, gameName", query))) {
+      bindPage(preparedStatement, query);
+      preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+      try (ResultSet resultSet=preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          PendingUpdate update=pending.get(resultSet.getInt("gameID"));
+          sink.accept(update != null ? update.game() : readSummary(resultSet));
+        }
       }
     } catch (SQLException e) {
       throw new DataAccessException(e.getMessage());
     }
-    return games;
   }
-}
\ No newline at end of file
+
+  private Map<Integer, PendingUpdate> pendingUpdates() {
+    return writeBehind == null ? Map.of() : writeBehind.pending();
+  }
+
+  /**
+   * Builds the SELECT for one page of games. The filters are matched against
+   * the stored rows, so a change still waiting in the write-behind buffer only
+   * affects which games match once it has been written.
+   */
+  private static String pageSQL(String columns, GameQuery query) {
+    StringBuilder sql=new StringBuilder("SELECT ").append(columns).append(" FROM game WHERE TRUE");
+    if (query.afterGameID() != null) {
+      sql.append(" AND gameID > ?");
+    }
+    if (query.openSeat()) {
+      sql.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+    }
+    if (query.player() != null) {
+      sql.append(" AND (whiteUsername=? OR blackUsername=?)");
+    }
+    if (query.namePrefix() != null) {
+      sql.append(" AND gameName LIKE ? ESCAPE '!'");
+    }
+    sql.append(" ORDER BY gameID");
+    if (query.limit() != null) {
+      sql.append(" LIMIT ?");
+    }
+    return sql.toString();
+  }
+
+  private static void bindPage(PreparedStatement preparedStatement, GameQuery query) throws SQLException {
+    int index=1;
+    if (query.afterGameID() != null) {
+      preparedStatement.setInt(index++, query.afterGameID());
+    }
+    if (query.player() != null) {
+      preparedStatement.setString(index++, query.player());
+      preparedStatement.setString(index++, query.player());
+    }
+    if (query.namePrefix() != null) {
+      String escaped=query.namePrefix().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+      preparedStatement.setString(index++, escaped + "%");
+    }
+    if (query.limit() != null) {
+      preparedStatement.setInt(index, query.limit());
+    }
+  }
+
+  private GameData readSummary(ResultSet resultSet) throws SQLException {
+    return new GameData(resultSet.getInt("gameID"), resultSet.getString("whiteUsername"),
+            resultSet.getString("blackUsername"), resultSet.getString("gameName"), null);
+  }
+
+  private GameData readGame(ResultSet resultSet) throws SQLException, DataAccessException {
+    int gameID=resultSet.getInt("gameID");
+    String whiteUsername=resultSet.getString("whiteUsername");
+    String blackUsername=resultSet.getString("blackUsername");
+    String gameName=resultSet.getString("gameName");
+    ChessGame chessGame=decodeGame(resultSet.getBytes("chessGame"));
+    return new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame);
+  }
+
+  /**
+   * Decodes a stored snapshot. Games saved before the binary codec hold Gson
+   * JSON, which always starts with '{' where the codec starts with its version.
+   */
+  private ChessGame decodeGame(byte[] bytes) throws DataAccessException {
+    if (bytes == null) {
+      return null;
+    }
+    if (bytes.length > 0 && bytes[0] == '{') {
+      return new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8), ChessGame.class);
+    }
+    try {
+      return ChessGameCodec.decode(bytes);
+    } catch (IllegalArgumentException e) {
+      throw new DataAccessException("Error: stored game cannot be read: " + e.getMessage());
+    }
+  }
+
+  private void replay(GameData game, int move) throws DataAccessException {
+    try {
+      game.game().makeMove(PackedMove.unpack(move));
+    } catch (InvalidMoveException e) {
+      throw new DataAccessException("Error: move log for game " + game.gameID() + " cannot be replayed");
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on a virtual thread of its own, with at most a fixed number
+ * running at once. A task past the limit waits for a permit on its virtual
+ * thread, so waiting work holds no platform thread. {@link #shutdownNow()}
+ * interrupts the waiting tasks too, and a task submitted for its result is
+ * cancelled rather than left unfinished.
+ */
+class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+    private final ExecutorService threads;
+    private final Semaphore permits;
+    private final int limit;
+
+    /**
+     * @param name  prefixes the names of the threads
+     * @param limit the most tasks to run at once
+     */
+    BoundedVirtualThreadExecutor(String name, int limit) {
+        this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name, 0).factory());
+        this.permits = new Semaphore(limit, true);
+        this.limit = limit;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threads.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // stopped while waiting: a submitted task is cancelled so its caller stops
+                // waiting, and anything else runs once so it sees the interrupt
+                Thread.currentThread().interrupt();
+                if (task instanceof Future<?> future) {
+                    future.cancel(false);
+                } else {
+                    task.run();
+                }
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Runs the task and waits for its result, rethrowing whatever it threw
+     */
+    <T> T call(Callable<T> task) throws Exception {
+        Future<T> result = submit(task);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * @return how many tasks are waiting for a permit
+     */
+    int getQueueDepth() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return how many tasks hold a permit
+     */
+    int getActiveCount() {
+        return limit - permits.availablePermits();
+    }
+
+    @Override
+    public void shutdown() {
+        threads.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return threads.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return threads.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return threads.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return threads.awaitTermination(timeout, unit);
+    }
+}
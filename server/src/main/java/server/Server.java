@@ -1,16 +1,21 @@
 package server;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import dataaccess.AuthDAO;
+import dataaccess.CachingAuthDAO;
+import dataaccess.CachingGameDAO;
 import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
 import dataaccess.UserDAO;
 import dataaccess.database.SQLAuthDAO;
 import dataaccess.database.SQLGameDAO;
 import dataaccess.database.SQLUserDAO;
+import model.GameData;
 import model.joingame.JoinGameRequest;
 import model.listgames.ListGamesRequest;
-import model.listgames.ListGamesResult;
 import model.login.LoginRequest;
 import model.login.LoginResult;
 import model.logout.LogoutRequest;
@@ -23,27 +28,103 @@ import server.websocket.WebsocketHandler;
 import service.ClearService;
 import service.GameService;
 import service.UserService;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import spark.*;
+import spark.embeddedserver.EmbeddedServerFactory;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
+    private static final long GAME_FLUSH_INTERVAL_MILLIS = 50;
+    private static final int GAME_CACHE_SIZE = 256;
+    private static final long GAME_CACHE_TTL_MILLIS = 60_000;
+    private static final int AUTH_CACHE_SIZE = 10_000;
+    private static final long AUTH_CACHE_TTL_MILLIS = 60_000;
+    private static final long INVALID_AUTH_CACHE_TTL_MILLIS = 5_000;
+    // Jetty's own defaults for the request pool
+    private static final int MAX_REQUEST_THREADS = 200;
+    private static final int MIN_REQUEST_THREADS = 8;
+    private static final int THREAD_IDLE_TIMEOUT_MILLIS = 60_000;
+    /**
+     * How many games a listing reads per query before writing them out
+     */
+    private static final int LISTING_CHUNK_SIZE = 100;
+
     private AuthDAO authDAO;
     private GameDAO gameDAO;
     private UserDAO userDAO;
     private WebsocketHandler websocketHandler;
     private ConnectionManager connectionManager;
+    private ExecutorService commandExecutor;
+    private QueuedThreadPool requestPool;
+    private BoundedVirtualThreadExecutor requestExecutor;
+    private Executor hashExecutor;
+    private final int virtualThreadLimit;
+
+    /**
+     * Creates a server that handles requests and websocket commands on platform
+     * threads
+     */
+    public Server() {
+        this(0);
+    }
+
+    private Server(int virtualThreadLimit) {
+        this.virtualThreadLimit = virtualThreadLimit;
+    }
+
+    /**
+     * Creates a server that handles requests and websocket commands on virtual
+     * threads. Jetty keeps its platform pool for accepting and selecting, and
+     * each request is handed off with servlet async, so requests blocked on the
+     * database hold no platform thread and are not bounded by Jetty's pool.
+     * Work beyond the limit waits for a permit.
+     *
+     * @param maxConcurrency the most requests, and separately the most
+     *                       websocket commands, to handle at once
+     */
+    public static Server withVirtualThreads(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        return new Server(maxConcurrency);
+    }
 
     public int run(int desiredPort) {
         try {
-            authDAO = new SQLAuthDAO();
-            gameDAO = new SQLGameDAO();
+            authDAO = new CachingAuthDAO(new SQLAuthDAO(), AUTH_CACHE_SIZE, AUTH_CACHE_TTL_MILLIS,
+                    INVALID_AUTH_CACHE_TTL_MILLIS);
+            gameDAO = new CachingGameDAO(new SQLGameDAO(GAME_FLUSH_INTERVAL_MILLIS), GAME_CACHE_SIZE,
+                    GAME_CACHE_TTL_MILLIS);
             userDAO = new SQLUserDAO();
         } catch (DataAccessException e) {
             throw new RuntimeException(e);
         }
         connectionManager = new ConnectionManager();
-        websocketHandler = new WebsocketHandler(connectionManager, new GameService(authDAO, gameDAO), authDAO, gameDAO);
+        requestPool = new QueuedThreadPool(MAX_REQUEST_THREADS, MIN_REQUEST_THREADS, THREAD_IDLE_TIMEOUT_MILLIS);
+        EmbeddedServerFactory serverFactory = new EmbeddedJettyFactory().withThreadPool(requestPool);
+        if (virtualThreadLimit > 0) {
+            requestExecutor = new BoundedVirtualThreadExecutor("request-", virtualThreadLimit);
+            serverFactory = VirtualThreadHandler.serverFactory(requestPool, requestExecutor);
+        }
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), serverFactory);
+        commandExecutor = createCommandExecutor();
+        hashExecutor = createHashExecutor();
+        websocketHandler = new WebsocketHandler(connectionManager, new GameService(authDAO, gameDAO), authDAO, gameDAO,
+                commandExecutor);
 
 
         Spark.port(desiredPort);
@@ -74,20 +155,155 @@ public class Server {
         return Spark.port();
     }
 
+    private ExecutorService createCommandExecutor() {
+        if (virtualThreadLimit > 0) {
+            return new BoundedVirtualThreadExecutor("websocket-command-", virtualThreadLimit);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, THREAD_IDLE_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("websocket-command-", 0).daemon().factory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * BCrypt keeps its thread busy for the whole hash, so on virtual threads it
+     * runs on a platform pool the size of the CPU instead
+     */
+    private Executor createHashExecutor() {
+        if (virtualThreadLimit > 0) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    Thread.ofPlatform().name("password-hash-", 0).daemon().factory());
+        }
+        return Runnable::run;
+    }
+
+    /**
+     * @return how many requests are waiting for a virtual thread permit, or on
+     * platform threads how many HTTP and websocket jobs are waiting for a thread
+     */
+    public int getRequestQueueDepth() {
+        return requestExecutor != null ? requestExecutor.getQueueDepth() : requestPool.getQueueSize();
+    }
+
+    /**
+     * @return how many requests are being handled, or on platform threads how
+     * many request threads are busy
+     */
+    public int getActiveRequestCount() {
+        return requestExecutor != null ? requestExecutor.getActiveCount() : requestPool.getBusyThreads();
+    }
+
+    /**
+     * @return how many games have websocket commands waiting for a thread
+     */
+    public int getCommandQueueDepth() {
+        return commandExecutor instanceof BoundedVirtualThreadExecutor virtual
+                ? virtual.getQueueDepth() : ((ThreadPoolExecutor) commandExecutor).getQueue().size();
+    }
+
+    /**
+     * @return how many websocket commands are running
+     */
+    public int getActiveCommandCount() {
+        return commandExecutor instanceof BoundedVirtualThreadExecutor virtual
+                ? virtual.getActiveCount() : ((ThreadPoolExecutor) commandExecutor).getActiveCount();
+    }
+
+    /**
+     * @return how many websocket messages are waiting for slow sessions to read them
+     */
+    public int getOutboundQueueDepth() {
+        return connectionManager.getOutboundQueueDepth();
+    }
+
+    /**
+     * @return how many websocket messages were dropped because a session fell behind
+     */
+    public long getDroppedMessageCount() {
+        return connectionManager.getDroppedMessageCount();
+    }
+
+    /**
+     * Writes the listing to the response {@link #LISTING_CHUNK_SIZE} games at a
+     * time. Each game is serialized as it is read, into a buffer that only holds
+     * the current chunk, and the buffer is sent once the chunk's database
+     * connection has been returned, so a client that reads slowly never holds a
+     * connection. Each chunk is read in its own transaction, so a listing longer
+     * than one chunk is not a single snapshot: every game appears at most once,
+     * as its chunk saw it, and games created or changed while the listing runs
+     * may or may not be included.
+     */
     private Object listGamesHandler(Request request, Response response) {
         Gson gson = new Gson();
         GameService gameService = new GameService(authDAO, gameDAO);
 
+        ListGamesRequest req;
+        GameQuery query;
         try {
-            ListGamesRequest req = new ListGamesRequest(request.headers("authorization"));
-            ListGamesResult res = gameService.listGames(req);
-            response.status(200);
-            return new Gson().toJson(res);
+            req = new ListGamesRequest(request.headers("authorization"),
+                    Boolean.parseBoolean(request.queryParams("summary")), intQueryParam(request, "cursor"),
+                    intQueryParam(request, "limit"), Boolean.parseBoolean(request.queryParams("open")),
+                    request.queryParams("player"), request.queryParams("prefix"));
+            query = gameService.listQuery(req);
         } catch(DataAccessException e) {
             return handleDataAccessError(response, e);
-        } catch(Exception e) {
-            response.status(500);
-            return new Gson().toJson(new Error(e.getMessage()));
+        }
+
+        HttpServletResponse raw = response.raw();
+        try {
+            response.status(200);
+            response.type("application/json");
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(chunk, StandardCharsets.UTF_8));
+            writer.beginObject().name("games").beginArray();
+            Integer remaining = query.limit();
+            Integer nextCursor = query.afterGameID();
+            do {
+                int chunkSize = remaining != null ? Math.min(remaining, LISTING_CHUNK_SIZE) : LISTING_CHUNK_SIZE;
+                GameQuery page = new GameQuery(nextCursor, chunkSize, query.openSeat(), query.player(),
+                        query.namePrefix());
+                nextCursor = gameService.streamGames(page, req.summaryOnly(),
+                        game -> gson.toJson(game, GameData.class, writer));
+                if (remaining != null) {
+                    remaining -= chunkSize;
+                }
+                writer.flush();
+                chunk.writeTo(raw.getOutputStream());
+                chunk.reset();
+            } while (nextCursor != null && (remaining == null || remaining > 0));
+            writer.endArray();
+            if (query.limit() != null && nextCursor != null) {
+                writer.name("nextCursor").value(nextCursor);
+            }
+            writer.endObject();
+            writer.flush();
+            chunk.writeTo(raw.getOutputStream());
+            raw.getOutputStream().flush();
+            return "";
+        } catch(DataAccessException | IOException | RuntimeException e) {
+            if (!raw.isCommitted()) {
+                raw.resetBuffer();
+                return e instanceof DataAccessException dataAccessError
+                        ? handleDataAccessError(response, dataAccessError)
+                        : errorResponse(response, 500, "Error: " + e.getMessage());
+            }
+            // the status and the start of the body are already sent, so all that can be done is stop
+            System.out.println("Failed to stream games: " + e.getMessage());
+            return "";
+        }
+    }
+
+    private Integer intQueryParam(Request request, String name) throws DataAccessException {
+        String value = request.queryParams(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new DataAccessException("Bad Request");
         }
     }
 
@@ -141,7 +357,7 @@ public class Server {
     }
 
     private Object logoutHandler(Request request, Response response) {
-        UserService userService = new UserService(authDAO, userDAO);
+        UserService userService = new UserService(authDAO, userDAO, hashExecutor);
 
         try {
             LogoutRequest req = new LogoutRequest(request.headers("authorization"));
@@ -156,7 +372,7 @@ public class Server {
 
     private Object loginHandler(Request request, Response response) {
         Gson gson = new Gson();
-        UserService userService = new UserService(authDAO, userDAO);
+        UserService userService = new UserService(authDAO, userDAO, hashExecutor);
 
         try {
             LoginRequest req = gson.fromJson(request.body(), LoginRequest.class);
@@ -172,7 +388,7 @@ public class Server {
 
     private Object registerHandler(Request request, Response response) {
         Gson gson = new Gson();
-        UserService userService = new UserService(authDAO, userDAO);
+        UserService userService = new UserService(authDAO, userDAO, hashExecutor);
 
         try {
             RegisterRequest req = gson.fromJson(request.body(), RegisterRequest.class);
@@ -209,5 +425,26 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        commandExecutor.shutdown();
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+        if (hashExecutor instanceof ExecutorService hashPool) {
+            hashPool.shutdown();
+        }
+        connectionManager.close();
+        try {
+            if (!commandExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.out.println("Websocket commands were still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            gameDAO.close();
+        } catch (DataAccessException e) {
+            System.out.println("Unable to write pending game updates: " + e.getMessage());
+        }
+        DatabaseManager.closePool();
     }
 }
@@ -0,0 +1,107 @@
+package server;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServerFactory;
+import spark.embeddedserver.jetty.EmbeddedJettyServer;
+import spark.embeddedserver.jetty.HttpRequestWrapper;
+import spark.embeddedserver.jetty.JettyServerFactory;
+import spark.http.matching.MatcherFilter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Filter;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Stands in for Spark's own Jetty handler and runs Spark's filter, routes
+ * included, on a virtual thread. The request is handed off with servlet async,
+ * so the Jetty thread that read it goes straight back to the pool and a request
+ * blocked on the database holds no platform thread. Websocket upgrades are
+ * handled on the Jetty thread, since the upgrade has to finish inside the
+ * dispatch, and fall through to the websocket handler as they would in Spark.
+ */
+class VirtualThreadHandler extends SessionHandler {
+    private final Filter filter;
+    private final BoundedVirtualThreadExecutor executor;
+
+    VirtualThreadHandler(Filter filter, BoundedVirtualThreadExecutor executor) {
+        this.filter = filter;
+        this.executor = executor;
+    }
+
+    /**
+     * @return a factory for Spark servers that handle requests through a
+     * VirtualThreadHandler, with Jetty's I/O on the given pool
+     */
+    static EmbeddedServerFactory serverFactory(ThreadPool threadPool, BoundedVirtualThreadExecutor executor) {
+        return (routes, staticFiles, exceptionMapper, hasMultipleHandlers) -> {
+            MatcherFilter matcherFilter = new MatcherFilter(routes, staticFiles, exceptionMapper, false,
+                    hasMultipleHandlers);
+            matcherFilter.init(null);
+            VirtualThreadHandler handler = new VirtualThreadHandler(matcherFilter, executor);
+            handler.getSessionCookieConfig().setHttpOnly(true);
+            return new EmbeddedJettyServer(jettyServerFactory(), handler).withThreadPool(threadPool);
+        };
+    }
+
+    private static JettyServerFactory jettyServerFactory() {
+        return new JettyServerFactory() {
+            @Override
+            public org.eclipse.jetty.server.Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+                return new org.eclipse.jetty.server.Server(
+                        new QueuedThreadPool(maxThreads, minThreads, threadTimeoutMillis));
+            }
+
+            @Override
+            public org.eclipse.jetty.server.Server create(ThreadPool threadPool) {
+                return new org.eclipse.jetty.server.Server(threadPool);
+            }
+        };
+    }
+
+    @Override
+    public void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if ("websocket".equalsIgnoreCase(request.getHeader("Upgrade"))) {
+            HttpRequestWrapper wrapper = new HttpRequestWrapper(request);
+            filter.doFilter(wrapper, response, null);
+            baseRequest.setHandled(!wrapper.notConsumed());
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        baseRequest.setHandled(true);
+        try {
+            executor.execute(() -> handleAsync(target, request, response, async));
+        } catch (RejectedExecutionException e) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+
+    private void handleAsync(String target, HttpServletRequest request, HttpServletResponse response,
+                             AsyncContext async) {
+        try {
+            HttpRequestWrapper wrapper = new HttpRequestWrapper(request);
+            filter.doFilter(wrapper, response, null);
+            if (wrapper.notConsumed() && !response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            System.out.println("Request to " + target + " failed: " + e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        } finally {
+            async.complete();
+        }
+    }
+}
@@ -1,4 +1,271 @@
 package server.websocket;
 
-public class ConnectionManager {
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.Session;
+import websocket.messages.ServerMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The open websocket sessions, indexed three ways: by game for broadcasts, by
+ * auth token, and by session for what it subscribed to, so a closed session is
+ * removed from the other two without scanning them. Every message goes out
+ * through the session's {@link SessionOutbox}.
+ * <p>
+ * Sessions are removed when Jetty reports them closed or failed, and a sweeper
+ * removes any that closed without telling us.
+ */
+public final class ConnectionManager implements AutoCloseable {
+
+  /**
+   * A game a session is watching or playing, and the token it joined with
+   */
+  public record Subscription(int gameID, String authToken) {
+  }
+
+  private static final Gson GSON = new Gson();
+  private static final int DEFAULT_OUTBOX_CAPACITY = 64;
+  private static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60_000;
+
+  /**
+   * One session's outbox and subscriptions
+   */
+  private final class Connection {
+    private final Session session;
+    private final SessionOutbox outbox;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private Connection(Session session) {
+      this.session = session;
+      this.outbox = new SessionOutbox(session, outboxCapacity, overflowPolicy, queuedMessages, droppedMessages,
+              slowConsumerDisconnects);
+    }
+  }
+
+  private final int outboxCapacity;
+  private final SessionOutbox.OverflowPolicy overflowPolicy;
+  private final ConcurrentHashMap<Session, Connection> connections = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, Map<String, Connection>> games = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Set<Connection>> tokens = new ConcurrentHashMap<>();
+  private final AtomicInteger queuedMessages = new AtomicInteger();
+  private final AtomicLong droppedMessages = new AtomicLong();
+  private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+  private final ScheduledExecutorService sweeper;
+
+  public ConnectionManager() {
+    this(DEFAULT_OUTBOX_CAPACITY, SessionOutbox.OverflowPolicy.COALESCE_LOAD, DEFAULT_SWEEP_INTERVAL_MILLIS);
+  }
+
+  /**
+   * @param outboxCapacity      the most messages to hold for a session that is slow to read them
+   * @param overflowPolicy      what to do with a message for a session that already has that many waiting
+   * @param sweepIntervalMillis how often to look for sessions that closed without being removed
+   */
+  public ConnectionManager(int outboxCapacity, SessionOutbox.OverflowPolicy overflowPolicy, long sweepIntervalMillis) {
+    this.outboxCapacity = outboxCapacity;
+    this.overflowPolicy = overflowPolicy;
+
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "websocket-session-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleAtFixedRate(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Subscribes the session to a game's broadcasts. A session already in the
+   * game with the same token is replaced.
+   */
+  public void add(int gameID, String authToken, Session session) {
+    Connection connection = connectionFor(session);
+    Subscription subscription = new Subscription(gameID, authToken);
+    connection.subscriptions.add(subscription);
+    Connection[] replaced = new Connection[1];
+    games.compute(gameID, (id, members) -> {
+      if (members == null) {
+        members = new ConcurrentHashMap<>();
+      }
+      replaced[0] = members.put(authToken, connection);
+      return members;
+    });
+    tokens.compute(authToken, (token, sessions) -> {
+      if (sessions == null) {
+        sessions = ConcurrentHashMap.newKeySet();
+      }
+      sessions.add(connection);
+      return sessions;
+    });
+    if (replaced[0] != null && replaced[0] != connection) {
+      replaced[0].subscriptions.remove(subscription);
+      removeFromToken(authToken, replaced[0]);
+    }
+  }
+
+  /**
+   * Unsubscribes the session from a game, leaving its other subscriptions alone
+   */
+  public void remove(int gameID, String authToken, Session session) {
+    Connection connection = connections.get(session);
+    if (connection == null) {
+      return;
+    }
+    Subscription subscription = new Subscription(gameID, authToken);
+    if (connection.subscriptions.remove(subscription)) {
+      unsubscribe(connection, subscription);
+    }
+  }
+
+  /**
+   * Forgets a session that closed or failed, along with everything it subscribed to
+   */
+  public void remove(Session session) {
+    Connection connection = connections.remove(session);
+    if (connection == null) {
+      return;
+    }
+    connection.outbox.close();
+    List<Subscription> subscriptions = List.copyOf(connection.subscriptions);
+    connection.subscriptions.clear();
+    for (Subscription subscription : subscriptions) {
+      unsubscribe(connection, subscription);
+    }
+  }
+
+  /**
+   * Sends a message to every session in the game except the ones that joined
+   * with the given token, serializing it once for all of them
+   */
+  public void broadcast(int gameID, ServerMessage message, String exceptThisAuthToken) {
+    Map<String, Connection> members = games.get(gameID);
+    if (members == null) {
+      return;
+    }
+    String jsonMessage = null;
+    for (Map.Entry<String, Connection> entry : members.entrySet()) {
+      if (!Objects.equals(entry.getKey(), exceptThisAuthToken) && entry.getValue().session.isOpen()) {
+        if (jsonMessage == null) {
+          jsonMessage = GSON.toJson(message);
+        }
+        entry.getValue().outbox.send(message.getServerMessageType(), jsonMessage);
+      }
+    }
+  }
+
+  /**
+   * Sends a message to one session
+   */
+  public void send(Session session, ServerMessage message) {
+    if (session.isOpen()) {
+      connectionFor(session).outbox.send(message.getServerMessageType(), GSON.toJson(message));
+    }
+  }
+
+  /**
+   * @return the open sessions that connected with the token
+   */
+  public Set<Session> getSessions(String authToken) {
+    Set<Connection> sessions = tokens.get(authToken);
+    if (sessions == null) {
+      return Set.of();
+    }
+    return sessions.stream().map(connection -> connection.session).filter(Session::isOpen)
+            .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * @return the games the session is subscribed to
+   */
+  public Set<Subscription> getSubscriptions(Session session) {
+    Connection connection = connections.get(session);
+    return connection == null ? Set.of() : Set.copyOf(connection.subscriptions);
+  }
+
+  /**
+   * Removes every session that is no longer open
+   */
+  public void sweep() {
+    for (Session session : connections.keySet()) {
+      if (!session.isOpen()) {
+        remove(session);
+      }
+    }
+  }
+
+  /**
+   * @return how many sessions are tracked
+   */
+  public int getConnectionCount() {
+    return connections.size();
+  }
+
+  /**
+   * @return how many games have at least one session
+   */
+  public int getGameCount() {
+    return games.size();
+  }
+
+  /**
+   * @return how many messages are waiting to be written, across every session
+   */
+  public int getOutboundQueueDepth() {
+    return queuedMessages.get();
+  }
+
+  /**
+   * @return how many messages slow sessions have had dropped or replaced by a newer board
+   */
+  public long getDroppedMessageCount() {
+    return droppedMessages.get();
+  }
+
+  /**
+   * @return how many sessions were closed for falling too far behind
+   */
+  public long getSlowConsumerDisconnectCount() {
+    return slowConsumerDisconnects.get();
+  }
+
+  /**
+   * Stops the sweeper
+   */
+  @Override
+  public void close() {
+    sweeper.shutdownNow();
+  }
+
+  private Connection connectionFor(Session session) {
+    return connections.computeIfAbsent(session, Connection::new);
+  }
+
+  private void unsubscribe(Connection connection, Subscription subscription) {
+    games.computeIfPresent(subscription.gameID(), (id, members) -> {
+      members.remove(subscription.authToken(), connection);
+      return members.isEmpty() ? null : members;
+    });
+    removeFromToken(subscription.authToken(), connection);
+  }
+
+  private void removeFromToken(String authToken, Connection connection) {
+    for (Subscription subscription : connection.subscriptions) {
+      if (authToken.equals(subscription.authToken())) {
+        return;
+      }
+    }
+    tokens.computeIfPresent(authToken, (token, sessions) -> {
+      sessions.remove(connection);
+      return sessions.isEmpty() ? null : sessions;
+    });
+  }
 }
@@ -0,0 +1,79 @@
+package server.websocket;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one game at a time. Each game gets a mailbox of pending tasks that
+ * are run in the order they were submitted, never two at once, while the
+ * mailboxes of different games are drained in parallel on the shared executor.
+ * A mailbox only exists while its game has work, so idle games cost nothing.
+ */
+public class GameExecutor {
+  private final Executor executor;
+  private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+  private final class Mailbox implements Runnable {
+    private final int gameID;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private Mailbox(int gameID) {
+      this.gameID = gameID;
+    }
+
+    @Override
+    public void run() {
+      do {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            System.out.println("Command for game " + gameID + " failed: " + e);
+          }
+        }
+      } while (!retire());
+    }
+
+    /**
+     * Removes the mailbox if nothing was submitted since it was last drained
+     */
+    private boolean retire() {
+      return mailboxes.computeIfPresent(gameID, (id, mailbox) -> mailbox.tasks.isEmpty() ? null : mailbox) == null;
+    }
+  }
+
+  /**
+   * @param executor runs the mailboxes; commands for different games run on it in parallel
+   */
+  public GameExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Queues a task to run after every task already submitted for the same game
+   */
+  public void submit(int gameID, Runnable task) {
+    Mailbox[] started = new Mailbox[1];
+    mailboxes.compute(gameID, (id, mailbox) -> {
+      if (mailbox == null) {
+        mailbox = new Mailbox(id);
+        started[0] = mailbox;
+      }
+      mailbox.tasks.add(task);
+      return mailbox;
+    });
+    if (started[0] != null) {
+      executor.execute(started[0]);
+    }
+  }
+
+  /**
+   * @return how many games have tasks queued or running
+   */
+  public int activeGames() {
+    return mailboxes.size();
+  }
+}
@@ -0,0 +1,186 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The messages waiting to go out on one websocket session.
+ * <p>
+ * Only one message is written at a time; the next one is sent when Jetty reports
+ * the last one done. The queue holds at most {@code capacity} messages, and the
+ * {@link OverflowPolicy} decides what gives when a session reads slower than the
+ * game produces messages, so a stalled client costs a bounded amount of memory.
+ */
+public class SessionOutbox implements WriteCallback {
+
+  /**
+   * What to do with a message for a session whose queue is full
+   */
+  public enum OverflowPolicy {
+    /**
+     * Drop the oldest queued notification, or the oldest message if none are
+     * notifications
+     */
+    DROP_OLDEST,
+    /**
+     * Keep only the latest board, since a new LOAD_GAME replaces any queued one,
+     * and otherwise drop like {@link #DROP_OLDEST}
+     */
+    COALESCE_LOAD,
+    /**
+     * Close the session
+     */
+    DISCONNECT
+  }
+
+  private record Outgoing(ServerMessageType type, String json) {
+  }
+
+  private final Session session;
+  private final int capacity;
+  private final OverflowPolicy policy;
+  private final AtomicInteger queued;
+  private final AtomicLong dropped;
+  private final AtomicLong disconnects;
+  private final Deque<Outgoing> messages = new ArrayDeque<>();
+  private boolean sending;
+  private boolean closed;
+
+  /**
+   * @param capacity    the most messages to hold for the session
+   * @param queued      counts messages waiting across every outbox
+   * @param dropped     counts messages discarded by the overflow policy
+   * @param disconnects counts sessions closed for falling behind
+   */
+  SessionOutbox(Session session, int capacity, OverflowPolicy policy, AtomicInteger queued, AtomicLong dropped,
+                AtomicLong disconnects) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    this.session = session;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.queued = queued;
+    this.dropped = dropped;
+    this.disconnects = disconnects;
+  }
+
+  /**
+   * Queues a message behind the ones already waiting, and starts sending if
+   * nothing is being written
+   *
+   * @return false if the session was closed instead
+   */
+  public boolean send(ServerMessageType type, String json) {
+    boolean disconnect = false;
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      if (policy == OverflowPolicy.COALESCE_LOAD && type == ServerMessageType.LOAD_GAME) {
+        removeFirst(ServerMessageType.LOAD_GAME);
+      }
+      if (messages.size() >= capacity && policy == OverflowPolicy.DISCONNECT) {
+        disconnects.incrementAndGet();
+        closeLocked();
+        disconnect = true;
+      } else {
+        if (messages.size() >= capacity && !removeFirst(ServerMessageType.NOTIFICATION)) {
+          messages.removeFirst();
+          queued.decrementAndGet();
+          dropped.incrementAndGet();
+        }
+        messages.addLast(new Outgoing(type, json));
+        queued.incrementAndGet();
+        if (sending) {
+          return true;
+        }
+        sending = true;
+      }
+    }
+    if (disconnect) {
+      session.close(StatusCode.POLICY_VIOLATION, "Too many messages waiting");
+      return false;
+    }
+    sendNext();
+    return true;
+  }
+
+  /**
+   * @return how many messages are waiting to be written
+   */
+  public synchronized int getQueueDepth() {
+    return messages.size();
+  }
+
+  /**
+   * Discards anything still waiting. Later sends are ignored.
+   */
+  public void close() {
+    synchronized (this) {
+      closeLocked();
+    }
+  }
+
+  private void closeLocked() {
+    closed = true;
+    queued.addAndGet(-messages.size());
+    messages.clear();
+  }
+
+  private boolean removeFirst(ServerMessageType type) {
+    Iterator<Outgoing> iterator = messages.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().type() == type) {
+        iterator.remove();
+        queued.decrementAndGet();
+        dropped.incrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void sendNext() {
+    Outgoing next;
+    synchronized (this) {
+      next = messages.pollFirst();
+      if (next == null) {
+        sending = false;
+        return;
+      }
+      queued.decrementAndGet();
+    }
+    try {
+      session.getRemote().sendString(next.json(), this);
+    } catch (RuntimeException e) {
+      writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeSuccess() {
+    sendNext();
+  }
+
+  @Override
+  public void writeFailed(Throwable failure) {
+    System.out.println("Websocket send failed: " + failure);
+    if (session.isOpen()) {
+      sendNext();
+    } else {
+      synchronized (this) {
+        closeLocked();
+        sending = false;
+      }
+    }
+  }
+}
@@ -22,33 +22,76 @@ import websocket.messages.ServerMessage;
 import websocket.messages.Error;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 @WebSocket
 public class WebsocketHandler {
-  private final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Session>> sessionRegistry = new ConcurrentHashMap<>();
-  private final ArrayList<Integer> resignedGameIDs = new ArrayList<>();
+  private final Set<Integer> resignedGameIDs = ConcurrentHashMap.newKeySet();
   private final ConnectionManager connectionManager;
   private final AuthDAO authDAO;
   private final GameDAO gameDAO;
   private final GameService gameService;
-  private ChessGame chessGame;
+  private final GameExecutor gameExecutor;
   Logger logger;
+
+  /**
+   * Creates a handler that runs every command on the thread that received it
+   */
   public WebsocketHandler(ConnectionManager connectionManager, GameService gameService, AuthDAO authDAO, GameDAO gameDAO) {
+    this(connectionManager, gameService, authDAO, gameDAO, Runnable::run);
+  }
+
+  /**
+   * @param commandExecutor runs the commands; commands for one game run in the
+   *                        order they arrived and never overlap, while different
+   *                        games run in parallel
+   */
+  public WebsocketHandler(ConnectionManager connectionManager, GameService gameService, AuthDAO authDAO, GameDAO gameDAO,
+                          Executor commandExecutor) {
     this.connectionManager=connectionManager;
     this.gameService=gameService;
-    this.chessGame = new ChessGame();
     this.authDAO = authDAO;
     this.gameDAO = gameDAO;
+    this.gameExecutor = new GameExecutor(commandExecutor);
+  }
+
+  @OnWebSocketClose
+  public void onClose(Session session, int statusCode, String reason) {
+    connectionManager.remove(session);
+  }
+
+  @OnWebSocketError
+  public void onError(Session session, Throwable error) {
+    System.out.println("Websocket error: " + error);
+    connectionManager.remove(session);
   }
 
   @OnWebSocketMessage
   public void onMessage(Session session, String message) throws IOException, DataAccessException, InvalidMoveException {
     Map<String, Object> commandData = new Gson().fromJson(message, Map.class);
+    if (!(commandData.get("gameID") instanceof Number gameID)) {
+      sendResponse(new Error("Error: missing gameID"), session);
+      return;
+    }
+    gameExecutor.submit(gameID.intValue(), () -> runCommand(commandData, message, session));
+  }
+
+  private void runCommand(Map<String, Object> commandData, String message, Session session) {
+    try {
+      dispatch(commandData, message, session);
+    } catch (IOException | DataAccessException | RuntimeException e) {
+      System.out.println("Websocket command failed: " + e);
+      sendResponse(new Error("Error: " + e.getMessage()), session);
+    }
+  }
+
+  private void dispatch(Map<String, Object> commandData, String message, Session session)
+          throws IOException, DataAccessException {
     String commandType = (String) commandData.get("commandType");
 
     switch (commandType) {
@@ -67,26 +110,19 @@ public class WebsocketHandler {
     }
   }
 
-  private void handleLeaveGame(Map<String, Object> leaveCommand, Session session) throws IOException, DataAccessException {
+  private void handleLeaveGame(Map<String, Object> leaveCommand, Session session) throws DataAccessException {
     Integer gameID = ((Double) leaveCommand.get("gameID")).intValue();
     String authToken = (String) leaveCommand.get("authToken");
 
-    try {
-      String response=gameService.leave(leaveCommand);
+    String response=gameService.leave(leaveCommand);
 
-      removeSessionFromGame(gameID, authToken, session);
-      String notificationMessage=String.format("%s has left the game.", response);
-      notifyAllPlayers(gameID, new NotificationMessage(notificationMessage), authToken);
-    } catch (IOException e) {
-      sendResponse(new Error(e.getMessage()), session);
-    }
+    removeSessionFromGame(gameID, authToken, session);
+    String notificationMessage=String.format("%s has left the game.", response);
+    notifyAllPlayers(gameID, new NotificationMessage(notificationMessage), authToken);
   }
 
   private void removeSessionFromGame(Integer gameID, String authToken, Session session) {
-    ConcurrentHashMap<String, Session> authMap = sessionRegistry.get(gameID);
-    if (authMap != null) {
-      authMap.remove(authToken, session);
-    }
+    connectionManager.remove(gameID, authToken, session);
   }
 
   private void handleResign(Map<String, Object> resignCommand, Session session) throws IOException, DataAccessException {
@@ -142,7 +178,7 @@ public class WebsocketHandler {
         throw new InvalidMoveException("Error: a player has already resigned");
       }
 
-      chessGame = gameData.game();
+      ChessGame chessGame = gameData.game();
       if((chessGame.getTeamTurn() == ChessGame.TeamColor.WHITE
               && !Objects.equals(gameData.whiteUsername(), authData.username())) ||
               (chessGame.getTeamTurn() == ChessGame.TeamColor.BLACK
@@ -154,7 +190,7 @@ public class WebsocketHandler {
 
       GameData newGame = new GameData(gameData.gameID(), gameData.whiteUsername(),
               gameData.blackUsername(), gameData.gameName(), chessGame);
-      gameDAO.updateGame(newGame);
+      gameDAO.recordMove(newGame, chessMove);
 
       String checkResponse = gameService.doCheck(newGame, chessGame);
       if (!checkResponse.equals("null")) {
@@ -199,6 +235,7 @@ public class WebsocketHandler {
       gameService.connect(command);
 
       Integer gameID = ((Double) command.get("gameID")).intValue();
+      ChessGame chessGame = gameDAO.getGame(gameID).game();
       String authToken = (String) command.get("authToken");
       addSessionToGame(gameID, authToken, session);
       String notificationMessage = (playerColor == null)
@@ -212,24 +249,15 @@ public class WebsocketHandler {
     }
   }
 
-  private void notifyAllPlayers(Integer gameID, ServerMessage message, String exceptThisAuthToken) throws IOException {
-    ConcurrentHashMap<String, Session> gameSessions = sessionRegistry.get(gameID);
-    for (Map.Entry<String, Session> entry : gameSessions.entrySet()) {
-      if (!Objects.equals(entry.getKey(), exceptThisAuthToken) && entry.getValue().isOpen()) {
-        entry.getValue().getRemote().sendString(new Gson().toJson(message));
-      }
-    }
+  private void notifyAllPlayers(Integer gameID, ServerMessage message, String exceptThisAuthToken) {
+    connectionManager.broadcast(gameID, message, exceptThisAuthToken);
   }
 
   private void addSessionToGame(Integer gameID, String authToken, Session session) {
-    sessionRegistry.computeIfAbsent(gameID, k -> new ConcurrentHashMap<>()).put(authToken, session);
+    connectionManager.add(gameID, authToken, session);
   }
 
-  private void sendResponse(ServerMessage message, Session session) throws IOException {
-    if (session.isOpen()) {
-      String jsonMessage = new Gson().toJson(message);
-      session.getRemote().sendString(jsonMessage);
-    }
+  private void sendResponse(ServerMessage message, Session session) {
+    connectionManager.send(session, message);
   }
-
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.InvalidMoveException;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
 import model.AuthData;
 import model.GameData;
 import model.joingame.JoinGameRequest;
@@ -15,10 +17,17 @@ import model.creategame.CreateGameResult;
 import websocket.commands.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 public class GameService {
+  /**
+   * The most games one page of a listing may hold
+   */
+  public static final int MAX_PAGE_SIZE = 1000;
+
   private AuthDAO authDAO;
   private GameDAO gameDAO;
 
@@ -59,45 +68,70 @@ public class GameService {
       throw new DataAccessException("Bad Request");
     }
 
-    GameData updatedGame = assignPlayerToGame(joinRequest, auth, game);
-    gameDAO.updateGame(updatedGame);
+    ChessGame.TeamColor color = teamColor(joinRequest.playerColor());
+    if (!gameDAO.claimSeat(game.gameID(), color, auth.username())) {
+      throw new DataAccessException("Already Taken");
+    }
   }
 
-  private GameData assignPlayerToGame(JoinGameRequest joinRequest, AuthData auth, GameData game) throws DataAccessException {
-    String whiteUsername = game.whiteUsername();
-    String blackUsername = game.blackUsername();
-    String requestedColor = joinRequest.playerColor().toUpperCase();
-
-    switch (requestedColor) {
+  private ChessGame.TeamColor teamColor(String playerColor) throws DataAccessException {
+    switch (playerColor.toUpperCase()) {
       case "WHITE":
-        if (game.whiteUsername() == null || game.whiteUsername().equals(auth.username())) {
-          whiteUsername = auth.username();
-        } else {
-          throw new DataAccessException("Already Taken");//"Color Already Taken"
-        }
-        break;
+        return ChessGame.TeamColor.WHITE;
       case "BLACK":
-        if (game.blackUsername() == null || game.blackUsername().equals(auth.username())) {
-          blackUsername = auth.username();
-        } else {
-          throw new DataAccessException("Already Taken");
-        }
-        break;
+        return ChessGame.TeamColor.BLACK;
       default:
         throw new DataAccessException("Bad Request");
     }
-
-    return new GameData(game.gameID(), whiteUsername, blackUsername, game.gameName(), game.game());
   }
 
   public ListGamesResult listGames(ListGamesRequest listRequest) throws DataAccessException {
+    GameQuery query = listQuery(listRequest);
+    List<GameData> games = new ArrayList<>();
+    Integer nextCursor = streamGames(query, listRequest.summaryOnly(), games::add);
+    return new ListGamesResult(games, nextCursor);
+  }
+
+  /**
+   * Checks a listing request and builds the query for the page it asks for
+   */
+  public GameQuery listQuery(ListGamesRequest listRequest) throws DataAccessException {
     AuthData auth = authDAO.getAuth(listRequest.authToken());
 
     if (auth == null) {
       throw new DataAccessException("Unauthorized");
     }
 
-    return new ListGamesResult(gameDAO.listGames());
+    Integer limit = listRequest.limit();
+    if (limit != null && limit <= 0) {
+      throw new DataAccessException("Bad Request");
+    }
+    if (limit != null) {
+      limit = Math.min(limit, MAX_PAGE_SIZE);
+    }
+    return new GameQuery(listRequest.cursor(), limit, listRequest.openSeat(), listRequest.player(),
+            listRequest.namePrefix());
+  }
+
+  /**
+   * Hands each game on the page to the sink as it is read
+   *
+   * @return the cursor for the next page, or null if there are no more games
+   */
+  public Integer streamGames(GameQuery query, boolean summaryOnly, GameDAO.GameSink sink) throws DataAccessException {
+    int[] count = {0};
+    int[] lastGameID = {0};
+    GameDAO.GameSink counter = game -> {
+      count[0]++;
+      lastGameID[0] = game.gameID();
+      sink.accept(game);
+    };
+    if (summaryOnly) {
+      gameDAO.forEachGameSummary(query, counter);
+    } else {
+      gameDAO.forEachGame(query, counter);
+    }
+    return query.limit() != null && count[0] == query.limit() ? lastGameID[0] : null;
   }
 
   public String connect(Map<String, Object> command) throws DataAccessException {
@@ -156,7 +190,7 @@ public class GameService {
       return "Error: player not in game";
     }
 
-    gameDAO.updateGame(gameData);
+    gameDAO.updatePlayers(gameData);
     return authData.username() + " left the game successfully.";
   }
 
@@ -212,15 +246,15 @@ public class GameService {
       return "Error: Invalid move.";
     }
 
-    makeUpdate(gameData, game);
+    makeUpdate(gameData, game, command.getMove());
 
     return authData.username() + ", " + doCheck(gameData, game);
   }
 
-  private void makeUpdate(GameData gameData, ChessGame game) throws DataAccessException {
+  private void makeUpdate(GameData gameData, ChessGame game, ChessMove move) throws DataAccessException {
     GameData newGame = new GameData(gameData.gameID(), gameData.whiteUsername(),
             gameData.blackUsername(), gameData.gameName(), game);
-    gameDAO.updateGame(newGame);
+    gameDAO.recordMove(newGame, move);
   }
 
   private boolean checkTurn(AuthData authData, GameData gameData, ChessGame game) {
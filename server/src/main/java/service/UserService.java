@@ -12,18 +12,35 @@ import model.register.RegisterResult;
 import model.UserData;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 public class UserService {
   private UserDAO userDAO;
   private AuthDAO authDAO;
+  private final Executor hashExecutor;
 
   public UserService(AuthDAO authDAO, UserDAO userDAO) {
+    this(authDAO, userDAO, Runnable::run);
+  }
+
+  /**
+   * @param hashExecutor runs the BCrypt hashing. Callers on virtual threads should
+   *                     pass a platform thread pool, since a virtual thread busy
+   *                     hashing holds its carrier and starves every other virtual
+   *                     thread, while one waiting on the pool does not.
+   */
+  public UserService(AuthDAO authDAO, UserDAO userDAO, Executor hashExecutor) {
     this.authDAO = authDAO;
     this.userDAO = userDAO;
+    this.hashExecutor = hashExecutor;
   }
 
   public LoginResult loginUser(LoginRequest requestLogin) throws DataAccessException {
     UserData user = userDAO.getUser(requestLogin.username());
-    if (user == null || !BCrypt.checkpw(requestLogin.password(), user.password())) {
+    if (user == null || !hash(() -> BCrypt.checkpw(requestLogin.password(), user.password()))) {
       throw new DataAccessException("Unauthorized");
     }
 
@@ -47,7 +64,7 @@ public class UserService {
       throw new DataAccessException("Already Taken");
     }
 
-    String hashedPassword = BCrypt.hashpw(register.password(), BCrypt.gensalt());
+    String hashedPassword = hash(() -> BCrypt.hashpw(register.password(), BCrypt.gensalt()));
     userDAO.createUser(register.username(), hashedPassword, register.email());
     String authToken = authDAO.createAuth(register.username());
 
@@ -63,4 +80,15 @@ public class UserService {
 
     authDAO.deleteAuth(requestLogout.authToken());
   }
+
+  private <T> T hash(Supplier<T> work) {
+    try {
+      return CompletableFuture.supplyAsync(work, hashExecutor).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
 }
@@ -0,0 +1,118 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthDAOTests {
+
+  private static class CountingAuthDAO extends AuthDAO {
+    private int reads;
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+      reads++;
+      return super.getAuth(authToken);
+    }
+  }
+
+  private final long[] now = {0};
+  private CountingAuthDAO store;
+  private CachingAuthDAO cachingDAO;
+
+  @BeforeEach
+  public void setUp() {
+    store = new CountingAuthDAO();
+    cachingDAO = new CachingAuthDAO(store, new LruCache<>(2, 60_000, () -> now[0]),
+            new LruCache<>(2, 1_000, () -> now[0]));
+  }
+
+  @Test
+  public void createdTokensAreServedFromTheCache() throws DataAccessException {
+    String token = cachingDAO.createAuth("user");
+    assertEquals(new AuthData(token, "user"), cachingDAO.getAuth(token));
+    assertEquals(new AuthData(token, "user"), cachingDAO.getAuth(token));
+
+    assertEquals(0, store.reads);
+    assertEquals(2, cachingDAO.getHits());
+  }
+
+  @Test
+  public void validTokensAreReadOnce() throws DataAccessException {
+    String token = store.createAuth("user");
+    cachingDAO.getAuth(token);
+    cachingDAO.getAuth(token);
+
+    assertEquals(1, store.reads);
+    assertEquals(1, cachingDAO.getMisses());
+  }
+
+  @Test
+  public void invalidTokensAreRejectedFromTheCacheUntilTheyExpire() throws DataAccessException {
+    for (int i = 0; i < 5; i++) {
+      assertNull(cachingDAO.getAuth("bad token"));
+    }
+    assertEquals(1, store.reads);
+    assertEquals(4, cachingDAO.getInvalidHits());
+
+    now[0] = 1_000;
+    assertNull(cachingDAO.getAuth("bad token"));
+    assertEquals(2, store.reads);
+  }
+
+  @Test
+  public void invalidTokensDoNotEvictValidOnes() throws DataAccessException {
+    String token = cachingDAO.createAuth("user");
+    for (int i = 0; i < 10; i++) {
+      cachingDAO.getAuth("bad token " + i);
+    }
+
+    assertNotNull(cachingDAO.getAuth(token));
+    assertEquals(10, store.reads);
+  }
+
+  @Test
+  public void deleteAuthTakesEffectImmediately() throws DataAccessException {
+    String token = cachingDAO.createAuth("user");
+    cachingDAO.getAuth(token);
+    cachingDAO.deleteAuth(token);
+
+    assertNull(cachingDAO.getAuth(token));
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  public void deleteAllAuthTakesEffectImmediately() throws DataAccessException {
+    String first = cachingDAO.createAuth("first");
+    String second = cachingDAO.createAuth("second");
+    cachingDAO.deleteAllAuth();
+
+    assertNull(cachingDAO.getAuth(first));
+    assertNull(cachingDAO.getAuth(second));
+  }
+
+  @Test
+  public void lookupsOverlappingADeleteAreNotCached() throws DataAccessException {
+    String token = store.createAuth("user");
+    CachingAuthDAO[] racing = new CachingAuthDAO[1];
+    AuthDAO slowStore = new AuthDAO() {
+      @Override
+      public AuthData getAuth(String authToken) throws DataAccessException {
+        AuthData auth = store.getAuth(authToken);
+        racing[0].deleteAuth(authToken);
+        return auth;
+      }
+
+      @Override
+      public void deleteAuth(String authToken) throws DataAccessException {
+        store.deleteAuth(authToken);
+      }
+    };
+    racing[0] = new CachingAuthDAO(slowStore, 2, 60_000, 1_000);
+
+    assertNotNull(racing[0].getAuth(token));
+    assertNull(racing[0].getAuth(token));
+  }
+}
@@ -0,0 +1,159 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingGameDAOTests {
+
+  private static class CountingGameDAO extends GameDAO {
+    private int reads;
+    private WriteBehindBuffer.StoreAction duringNextRead;
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+      reads++;
+      GameData game = super.getGame(gameID);
+      if (duringNextRead != null) {
+        WriteBehindBuffer.StoreAction action = duringNextRead;
+        duringNextRead = null;
+        action.run();
+      }
+      return game;
+    }
+  }
+
+  private final long[] now = {0};
+  private CountingGameDAO store;
+  private CachingGameDAO cachingDAO;
+
+  @BeforeEach
+  public void setUp() {
+    store = new CountingGameDAO();
+    cachingDAO = new CachingGameDAO(store, new LruCache<>(2, 1_000, () -> now[0]));
+  }
+
+  @Test
+  public void repeatedReadsAreServedFromTheCache() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    GameData first = cachingDAO.getGame(gameID);
+    GameData second = cachingDAO.getGame(gameID);
+
+    assertEquals(first, second);
+    assertEquals(1, store.reads);
+    assertEquals(1, cachingDAO.getHits());
+    assertEquals(1, cachingDAO.getMisses());
+  }
+
+  @Test
+  public void missingGamesAreNotCached() throws DataAccessException {
+    assertNull(cachingDAO.getGame(42));
+    assertNull(cachingDAO.getGame(42));
+    assertEquals(2, store.reads);
+  }
+
+  @Test
+  public void entriesExpireAfterTheirTtl() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    cachingDAO.getGame(gameID);
+    now[0] = 999;
+    cachingDAO.getGame(gameID);
+    assertEquals(1, store.reads);
+
+    now[0] = 1_000;
+    cachingDAO.getGame(gameID);
+    assertEquals(2, store.reads);
+  }
+
+  @Test
+  public void leastRecentlyUsedGameIsEvicted() throws DataAccessException {
+    int first = cachingDAO.createGame("first");
+    int second = cachingDAO.createGame("second");
+    int third = cachingDAO.createGame("third");
+    cachingDAO.getGame(first);
+    cachingDAO.getGame(second);
+    cachingDAO.getGame(first);
+    cachingDAO.getGame(third);
+    assertEquals(3, store.reads);
+
+    cachingDAO.getGame(first);
+    assertEquals(3, store.reads);
+    cachingDAO.getGame(second);
+    assertEquals(4, store.reads);
+  }
+
+  @Test
+  public void updatesReplaceTheCachedGame() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    GameData game = cachingDAO.getGame(gameID);
+    GameData joined = new GameData(gameID, "white", null, game.gameName(), game.game());
+    cachingDAO.updateGame(joined);
+
+    assertEquals(joined, cachingDAO.getGame(gameID));
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  public void failedUpdatesDropTheCachedGame() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    cachingDAO.getGame(gameID);
+    cachingDAO.deleteGames();
+    GameData game = new GameData(gameID, null, null, "game", new ChessGame());
+
+    assertThrows(DataAccessException.class, () -> cachingDAO.updateGame(game));
+    assertNull(cachingDAO.getGame(gameID));
+    assertEquals(2, store.reads);
+  }
+
+  @Test
+  public void recordedMovesReplaceTheCachedGame() throws Exception {
+    int gameID = cachingDAO.createGame("game");
+    GameData game = cachingDAO.getGame(gameID);
+    ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    game.game().makeMove(move);
+    cachingDAO.recordMove(game, move);
+
+    assertEquals(game, cachingDAO.getGame(gameID));
+    assertEquals(ChessGame.TeamColor.BLACK, cachingDAO.getGame(gameID).game().getTeamTurn());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  public void cachedGamesAreReadAsCopies() throws Exception {
+    int gameID = cachingDAO.createGame("game");
+    GameData first = cachingDAO.getGame(gameID);
+    first.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    GameData second = cachingDAO.getGame(gameID);
+    second.game().makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+
+    assertEquals(new ChessGame(), cachingDAO.getGame(gameID).game());
+    assertNotSame(second.game(), cachingDAO.getGame(gameID).game());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  public void readsOverlappingAWriteAreNotCached() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    GameData joined = new GameData(gameID, "white", null, "game", new ChessGame());
+    store.duringNextRead = () -> cachingDAO.updateGame(joined);
+
+    assertEquals(new GameData(gameID, null, null, "game", new ChessGame()), cachingDAO.getGame(gameID));
+    assertEquals(joined, cachingDAO.getGame(gameID));
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  public void deleteGamesClearsTheCache() throws DataAccessException {
+    int gameID = cachingDAO.createGame("game");
+    cachingDAO.getGame(gameID);
+    cachingDAO.deleteGames();
+
+    assertNull(cachingDAO.getGame(gameID));
+    assertEquals(2, store.reads);
+  }
+}
@@ -0,0 +1,189 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+
+  private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+  private final List<Connection> opened = new ArrayList<>();
+  private ConnectionPool pool;
+
+  @BeforeEach
+  public void setup() {
+    pool = newPool(2, 200, 60_000);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    pool.close();
+  }
+
+  private ConnectionPool newPool(int maxSize, long maxWaitMillis, long idleTimeoutMillis) {
+    return new ConnectionPool(() -> {
+      Connection connection = DriverManager.getConnection(URL);
+      opened.add(connection);
+      return connection;
+    }, maxSize, maxWaitMillis, idleTimeoutMillis);
+  }
+
+  @Test
+  public void reusesReturnedConnection() throws Exception {
+    try (Connection connection = pool.getConnection();
+         var statement = connection.prepareStatement("SELECT 1")) {
+      assertTrue(statement.executeQuery().next());
+      assertEquals(1, pool.getActiveCount());
+    }
+    assertEquals(0, pool.getActiveCount());
+    assertEquals(1, pool.getIdleCount());
+
+    try (Connection connection = pool.getConnection()) {
+      assertFalse(connection.isClosed());
+    }
+    assertEquals(1, opened.size());
+  }
+
+  @Test
+  public void closedConnectionCannotBeUsed() throws Exception {
+    Connection connection = pool.getConnection();
+    connection.close();
+    connection.close();
+    assertTrue(connection.isClosed());
+    assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void timesOutWhenExhausted() throws Exception {
+    try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+      DataAccessException e = assertThrows(DataAccessException.class, pool::getConnection);
+      assertEquals("Timed out waiting for a database connection", e.getMessage());
+      assertEquals(2, pool.getActiveCount());
+    }
+  }
+
+  @Test
+  public void waiterGetsReleasedConnection() throws Exception {
+    pool.close();
+    pool = newPool(1, 5_000, 60_000);
+    Connection held = pool.getConnection();
+
+    CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+      try (Connection connection = pool.getConnection()) {
+        return !connection.isClosed();
+      } catch (DataAccessException | SQLException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    long deadline = System.currentTimeMillis() + 2_000;
+    while (pool.getWaitingCount() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(1, pool.getWaitingCount());
+
+    held.close();
+    assertTrue(waiter.get(2, TimeUnit.SECONDS));
+    assertEquals(0, pool.getWaitingCount());
+    assertEquals(1, opened.size());
+  }
+
+  @Test
+  public void brokenConnectionIsReplacedOnBorrow() throws Exception {
+    pool.getConnection().close();
+    opened.get(0).close();
+
+    try (Connection connection = pool.getConnection()) {
+      assertFalse(connection.isClosed());
+    }
+    assertEquals(2, opened.size());
+  }
+
+  @Test
+  public void idleConnectionsAreEvicted() throws Exception {
+    pool.close();
+    pool = newPool(2, 200, 20);
+    pool.getConnection().close();
+    Thread.sleep(30);
+
+    pool.evictIdle();
+    assertEquals(0, pool.getIdleCount());
+    assertTrue(opened.get(0).isClosed());
+  }
+
+  @Test
+  public void preparedStatementsAreReusedAcrossBorrows() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      try (Connection connection = pool.getConnection();
+           PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+        statement.setInt(1, i);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          assertTrue(resultSet.next());
+          assertEquals(i, resultSet.getInt(1));
+        }
+        assertSame(connection, statement.getConnection());
+      }
+    }
+    assertEquals(1, pool.getStatementCacheMisses());
+    assertEquals(2, pool.getStatementCacheHits());
+  }
+
+  @Test
+  public void leastRecentlyUsedStatementIsEvicted() throws Exception {
+    pool.close();
+    pool = new ConnectionPool(() -> DriverManager.getConnection(URL), 1, 200, 60_000, 2);
+    for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3", "SELECT 2", "SELECT 1"}) {
+      try (Connection connection = pool.getConnection();
+           PreparedStatement statement = connection.prepareStatement(sql)) {
+        statement.executeQuery().close();
+      }
+    }
+    // only the second SELECT 1 hits: SELECT 3 evicts SELECT 2, whose return then evicts SELECT 1
+    assertEquals(1, pool.getStatementCacheHits());
+    assertEquals(5, pool.getStatementCacheMisses());
+  }
+
+  @Test
+  public void returnedStatementsGetTheirSettingsBack() throws Exception {
+    int fetchSize;
+    try (Connection connection = pool.getConnection();
+         PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+      fetchSize = statement.getFetchSize();
+      statement.setMaxRows(10);
+      statement.setFetchSize(fetchSize == 7 ? 8 : 7);
+      statement.setQueryTimeout(5);
+    }
+    try (Connection connection = pool.getConnection();
+         PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+      assertEquals(1, pool.getStatementCacheHits());
+      assertEquals(0, statement.getMaxRows());
+      assertEquals(0, statement.getQueryTimeout());
+      assertEquals(fetchSize, statement.getFetchSize());
+    }
+  }
+
+  @Test
+  public void schemaStatementsAreNotCached() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      try (Connection connection = pool.getConnection();
+           PreparedStatement statement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS pool_test (id INT)")) {
+        statement.executeUpdate();
+      }
+    }
+    assertEquals(0, pool.getStatementCacheHits());
+    assertEquals(0, pool.getStatementCacheMisses());
+  }
+}
@@ -2,13 +2,23 @@ package dataaccess;
 
 import chess.ChessBoard;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.database.SQLGameDAO;
 import model.GameData;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -66,6 +76,38 @@ public class SQLGameDAOTests {
     Assertions.assertEquals(3, gameList.size());
   }
 
+  @Test
+  public void listGameSummariesSkipBoards() throws DataAccessException {
+    int game = gameDAO.createGame("Game");
+    gameDAO.updateGame(new GameData(game, "white", null, "Game", new ChessGame()));
+
+    Collection<GameData> summaries = gameDAO.listGameSummaries();
+    Assertions.assertEquals(List.of(new GameData(game, "white", null, "Game", null)), summaries);
+  }
+
+  @Test
+  public void listGamesByPageWithFilters() throws DataAccessException {
+    int first = gameDAO.createGame("Lobby 1");
+    int second = gameDAO.createGame("Lobby 2");
+    int third = gameDAO.createGame("Lobby_3");
+    int fourth = gameDAO.createGame("Other");
+    gameDAO.updateGame(new GameData(second, "white", "black", "Lobby 2", new ChessGame()));
+    gameDAO.updateGame(new GameData(third, null, "black", "Lobby_3", new ChessGame()));
+
+    Collection<GameData> firstPage = gameDAO.listGames(new GameQuery(null, 2, false, null, null));
+    Assertions.assertEquals(List.of(first, second), firstPage.stream().map(GameData::gameID).toList());
+    Collection<GameData> secondPage = gameDAO.listGames(new GameQuery(second, 2, false, null, null));
+    Assertions.assertEquals(List.of(third, fourth), secondPage.stream().map(GameData::gameID).toList());
+    Assertions.assertEquals(new ChessGame(), secondPage.iterator().next().game());
+
+    Assertions.assertEquals(List.of(first, third, fourth), gameDAO.listGameSummaries(
+        new GameQuery(null, null, true, null, null)).stream().map(GameData::gameID).toList());
+    Assertions.assertEquals(List.of(second, third), gameDAO.listGameSummaries(
+        new GameQuery(null, null, false, "black", null)).stream().map(GameData::gameID).toList());
+    Assertions.assertEquals(List.of(third), gameDAO.listGameSummaries(
+        new GameQuery(null, null, false, null, "Lobby_")).stream().map(GameData::gameID).toList());
+  }
+
   @Test
   public void updateGameSuccess() throws DataAccessException {
     int game = gameDAO.createGame("Game");
@@ -79,6 +121,171 @@ public class SQLGameDAOTests {
     Assertions.assertEquals(newGameData, gameData);
   }
 
+  @Test
+  public void recordMoveReplaysPastSnapshot() throws DataAccessException, InvalidMoveException {
+    int game = gameDAO.createGame("Game");
+    ChessGame expected = new ChessGame();
+    ChessMove[] cycle = {
+        new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+        new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+        new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null),
+        new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null)};
+
+    for (int i = 0; i < SQLGameDAO.SNAPSHOT_INTERVAL + 5; i++) {
+      ChessMove move = cycle[i % cycle.length];
+      GameData gameData = gameDAO.getGame(game);
+      gameData.game().makeMove(move);
+      expected.makeMove(move);
+      gameDAO.recordMove(gameData, move);
+    }
+
+    Assertions.assertEquals(expected, new SQLGameDAO().getGame(game).game());
+    Assertions.assertEquals(expected, gameDAO.listGames().iterator().next().game());
+  }
+
+  @Test
+  public void listingsReturnPendingGamesInsteadOfReplaying() throws DataAccessException, InvalidMoveException {
+    int game = gameDAO.createGame("Game");
+    ChessMove[] moves = {
+        new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+        new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null)};
+    GameData played = gameDAO.getGame(game);
+    for (ChessMove move : moves) {
+      played.game().makeMove(move);
+      gameDAO.recordMove(played, move);
+    }
+
+    SQLGameDAO writeBehind = new SQLGameDAO(60_000);
+    GameData reset = new GameData(game, "white", null, "Game", new ChessGame());
+    writeBehind.updateGame(reset);
+    Assertions.assertEquals(List.of(reset), List.copyOf(writeBehind.listGames()));
+    Assertions.assertEquals(List.of(played), List.copyOf(gameDAO.listGames()));
+
+    writeBehind.close();
+    Assertions.assertEquals(List.of(reset), List.copyOf(gameDAO.listGames()));
+  }
+
+  @Test
+  public void loggedMovesAreNotOverwritten() throws DataAccessException, InvalidMoveException {
+    int game = gameDAO.createGame("Game");
+    SQLGameDAO stale = new SQLGameDAO();
+    GameData staleGame = stale.getGame(game);
+
+    ChessMove played = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+    GameData gameData = gameDAO.getGame(game);
+    gameData.game().makeMove(played);
+    gameDAO.recordMove(gameData, played);
+
+    ChessMove other = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+    staleGame.game().makeMove(other);
+    assertThrows(DataAccessException.class, () -> stale.recordMove(staleGame, other));
+    Assertions.assertEquals(gameData.game(), gameDAO.getGame(game).game());
+  }
+
+  @Test
+  public void pendingGamesAreReadAsCopies() throws DataAccessException, InvalidMoveException {
+    SQLGameDAO writeBehind = new SQLGameDAO(60_000);
+    int game = writeBehind.createGame("Game");
+    ChessGame chessGame = new ChessGame();
+    writeBehind.updateGame(new GameData(game, "white", null, "Game", chessGame));
+    chessGame.makeMove(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null));
+
+    GameData read = writeBehind.getGame(game);
+    Assertions.assertEquals(new ChessGame(), read.game());
+    read.game().makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+
+    Assertions.assertEquals(new ChessGame(), writeBehind.getGame(game).game());
+    Assertions.assertNotSame(writeBehind.getGame(game).game(), writeBehind.getGame(game).game());
+    writeBehind.close();
+    Assertions.assertEquals(new GameData(game, "white", null, "Game", new ChessGame()), gameDAO.getGame(game));
+  }
+
+  @Test
+  public void updatePlayersKeepsMovesPlayedSince() throws DataAccessException, InvalidMoveException {
+    int game = gameDAO.createGame("Game");
+    GameData joining = gameDAO.getGame(game);
+
+    ChessMove move = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+    GameData played = gameDAO.getGame(game);
+    played.game().makeMove(move);
+    gameDAO.recordMove(played, move);
+
+    gameDAO.updatePlayers(new GameData(game, "white", null, "Game", joining.game()));
+    Assertions.assertEquals(new GameData(game, "white", null, "Game", played.game()), gameDAO.getGame(game));
+    Assertions.assertEquals(played.game(), new SQLGameDAO().getGame(game).game());
+  }
+
+  @Test
+  public void updateGameRefusesABoardReadBeforeAMove() throws DataAccessException, InvalidMoveException {
+    int game = gameDAO.createGame("Game");
+    SQLGameDAO stale = new SQLGameDAO();
+    GameData staleGame = stale.getGame(game);
+
+    ChessMove move = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+    GameData played = gameDAO.getGame(game);
+    played.game().makeMove(move);
+    gameDAO.recordMove(played, move);
+
+    GameData joined = new GameData(game, "white", null, "Game", staleGame.game());
+    assertThrows(DataAccessException.class, () -> stale.updateGame(joined));
+    Assertions.assertEquals(played, gameDAO.getGame(game));
+  }
+
+  @Test
+  public void updatePlayersReachesPendingGames() throws DataAccessException {
+    SQLGameDAO writeBehind = new SQLGameDAO(60_000);
+    int game = writeBehind.createGame("Game");
+    writeBehind.updateGame(new GameData(game, "white", null, "Game", new ChessGame()));
+    writeBehind.updatePlayers(new GameData(game, "white", "black", "Game", null));
+
+    GameData joined = new GameData(game, "white", "black", "Game", new ChessGame());
+    Assertions.assertEquals(joined, writeBehind.getGame(game));
+    writeBehind.close();
+    Assertions.assertEquals(joined, gameDAO.getGame(game));
+  }
+
+  @Test
+  public void onlyOneOfConcurrentClaimsTakesASeat() throws Exception {
+    int game = gameDAO.createGame("Game");
+    int players = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(players);
+    try {
+      List<Future<Boolean>> claims = new ArrayList<>();
+      for (int i = 0; i < players; i++) {
+        String username = "player" + i;
+        claims.add(executor.submit(() -> {
+          start.await();
+          return gameDAO.claimSeat(game, ChessGame.TeamColor.WHITE, username);
+        }));
+      }
+      start.countDown();
+      List<String> winners = new ArrayList<>();
+      for (int i = 0; i < players; i++) {
+        if (claims.get(i).get(10, TimeUnit.SECONDS)) {
+          winners.add("player" + i);
+        }
+      }
+      Assertions.assertEquals(1, winners.size());
+      Assertions.assertEquals(winners.get(0), gameDAO.getGame(game).whiteUsername());
+      Assertions.assertTrue(gameDAO.claimSeat(game, ChessGame.TeamColor.WHITE, winners.get(0)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void claimSeatChecksPendingPlayers() throws DataAccessException {
+    SQLGameDAO writeBehind = new SQLGameDAO(60_000);
+    int game = writeBehind.createGame("Game");
+    writeBehind.updateGame(new GameData(game, "white", null, "Game", new ChessGame()));
+
+    Assertions.assertFalse(writeBehind.claimSeat(game, ChessGame.TeamColor.WHITE, "other"));
+    Assertions.assertTrue(writeBehind.claimSeat(game, ChessGame.TeamColor.BLACK, "black"));
+    Assertions.assertEquals(new GameData(game, "white", "black", "Game", new ChessGame()), writeBehind.getGame(game));
+    writeBehind.close();
+  }
+
   @Test
   public void updateGameFail() {
     assertThrows(DataAccessException.class, () -> gameDAO.updateGame(null));
@@ -0,0 +1,106 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindBufferTests {
+
+  private final List<Map<Integer, String>> batches = new CopyOnWriteArrayList<>();
+  private WriteBehindBuffer<Integer, String> buffer;
+
+  @AfterEach
+  public void tearDown() throws DataAccessException {
+    buffer.close();
+  }
+
+  @Test
+  public void coalescesUpdatesToTheSameKey() throws DataAccessException {
+    buffer = new WriteBehindBuffer<>("test", batch -> batches.add(batch), 60_000);
+    for (int i = 0; i < 10; i++) {
+      buffer.put(1, "move " + i);
+    }
+    buffer.put(2, "other game");
+    assertEquals("move 9", buffer.get(1));
+
+    buffer.flush();
+    assertEquals(List.of(Map.of(1, "move 9", 2, "other game")), batches);
+    assertNull(buffer.get(1));
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void flushesInTheBackground() throws InterruptedException {
+    buffer = new WriteBehindBuffer<>("test", batch -> batches.add(batch), 10);
+    buffer.put(1, "first");
+
+    long deadline = System.currentTimeMillis() + 2_000;
+    while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(List.of(Map.of(1, "first")), batches);
+  }
+
+  @Test
+  public void failedFlushKeepsValues() throws DataAccessException {
+    List<Boolean> failures = new ArrayList<>(List.of(true));
+    buffer = new WriteBehindBuffer<>("test", batch -> {
+      if (!failures.isEmpty() && failures.remove(0)) {
+        throw new DataAccessException("database unavailable");
+      }
+      batches.add(batch);
+    }, 60_000);
+    buffer.put(1, "first");
+
+    assertThrows(DataAccessException.class, buffer::flush);
+    assertEquals("first", buffer.get(1));
+
+    buffer.flush();
+    assertEquals(List.of(Map.of(1, "first")), batches);
+  }
+
+  @Test
+  public void updateDuringFlushIsNotLost() throws DataAccessException {
+    buffer = new WriteBehindBuffer<>("test", batch -> {
+      batches.add(batch);
+      if (batches.size() == 1) {
+        buffer.put(1, "second");
+      }
+    }, 60_000);
+    buffer.put(1, "first");
+
+    buffer.flush();
+    assertEquals("second", buffer.get(1));
+    buffer.flush();
+    assertEquals(List.of(Map.of(1, "first"), Map.of(1, "second")), batches);
+  }
+
+  @Test
+  public void mergeCombinesPendingValues() throws DataAccessException {
+    buffer = new WriteBehindBuffer<>("test", batch -> batches.add(batch), 60_000);
+    buffer.merge(1, "e4", (older, newer) -> older + " " + newer);
+    buffer.merge(1, "e5", (older, newer) -> older + " " + newer);
+
+    buffer.flush();
+    assertEquals(List.of(Map.of(1, "e4 e5")), batches);
+  }
+
+  @Test
+  public void closeDrainsAndClearDrops() throws DataAccessException {
+    buffer = new WriteBehindBuffer<>("test", batch -> batches.add(batch), 60_000);
+    buffer.put(1, "dropped");
+    List<String> cleared = new ArrayList<>();
+    buffer.clear(() -> cleared.add("store cleared"));
+    buffer.put(2, "kept");
+
+    buffer.close();
+    assertEquals(List.of("store cleared"), cleared);
+    assertEquals(List.of(Map.of(2, "kept")), batches);
+  }
+}
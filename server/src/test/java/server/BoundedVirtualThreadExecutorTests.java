@@ -0,0 +1,97 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedVirtualThreadExecutorTests {
+
+  private final BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("test-", 2);
+
+  @AfterEach
+  public void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void tasksPastTheLimitWaitForAPermit() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      executor.execute(() -> {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (executor.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, executor.getActiveCount());
+    assertEquals(1, executor.getQueueDepth());
+
+    release.countDown();
+    assertEquals("done", executor.call(() -> "done"));
+  }
+
+  @Test
+  public void callsWaitingForAPermitAreCancelledOnShutdown() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 2; i++) {
+      executor.execute(() -> {
+        // keeps its permit through the shutdown
+        while (release.getCount() > 0) {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            // ignored
+          }
+        }
+      });
+    }
+    CompletableFuture<Throwable> waiting = new CompletableFuture<>();
+    Thread caller = new Thread(() -> {
+      try {
+        executor.call(() -> "never");
+        waiting.complete(null);
+      } catch (Throwable e) {
+        waiting.complete(e);
+      }
+    });
+    caller.start();
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (executor.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, executor.getQueueDepth());
+
+    executor.shutdownNow();
+    try {
+      assertInstanceOf(CancellationException.class, waiting.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void callRunsOnAVirtualThreadAndRethrows() throws Exception {
+    assertTrue(executor.call(() -> Thread.currentThread().isVirtual()));
+    IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> executor.call(() -> {
+      throw new IllegalStateException("boom");
+    }));
+    assertEquals("boom", thrown.getMessage());
+  }
+}
@@ -0,0 +1,107 @@
+package server;
+
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadHandlerTests {
+
+  private static final int JETTY_THREADS = 200;
+  private static final int REQUESTS = 250;
+
+  private final CountDownLatch arrived = new CountDownLatch(REQUESTS);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("test-request-", REQUESTS);
+  private org.eclipse.jetty.server.Server jetty;
+  private int port;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    jetty = new org.eclipse.jetty.server.Server(new QueuedThreadPool(JETTY_THREADS, 8));
+    ServerConnector connector = new ServerConnector(jetty);
+    jetty.addConnector(connector);
+    jetty.setHandler(new VirtualThreadHandler(new Filter() {
+      @Override
+      public void init(FilterConfig config) {
+      }
+
+      @Override
+      public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException {
+        arrived.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        response.getWriter().write(Thread.currentThread().isVirtual() ? "virtual" : "platform");
+      }
+
+      @Override
+      public void destroy() {
+      }
+    }, executor));
+    jetty.start();
+    port = connector.getLocalPort();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    release.countDown();
+    jetty.stop();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void moreRequestsThanJettyThreadsAreInFlightAtOnce() throws Exception {
+    List<Socket> sockets = new ArrayList<>();
+    try {
+      for (int i = 0; i < REQUESTS; i++) {
+        Socket socket = new Socket("localhost", port);
+        OutputStream out = socket.getOutputStream();
+        out.write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        sockets.add(socket);
+      }
+
+      assertTrue(arrived.await(30, TimeUnit.SECONDS), "only " + (REQUESTS - arrived.getCount()) + " requests in flight");
+      assertEquals(REQUESTS, executor.getActiveCount());
+      release.countDown();
+
+      for (Socket socket : sockets) {
+        socket.setSoTimeout(30_000);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        assertEquals("HTTP/1.1 200 OK", reader.readLine());
+        String line;
+        String last = null;
+        while ((line = reader.readLine()) != null) {
+          last = line;
+        }
+        assertEquals("virtual", last);
+      }
+    } finally {
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+}
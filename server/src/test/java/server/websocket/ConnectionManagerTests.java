@@ -0,0 +1,143 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import websocket.messages.NotificationMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTests {
+
+  /**
+   * A session that finishes every write at once and can be closed by the test
+   */
+  private static class StubSession {
+    private final List<String> received = new ArrayList<>();
+    private boolean open = true;
+    private final Session session;
+
+    StubSession() {
+      RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+              new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                if (method.getName().equals("sendString")) {
+                  received.add((String) args[0]);
+                  ((WriteCallback) args[1]).writeSuccess();
+                }
+                return null;
+              });
+      session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+              (proxy, method, args) -> switch (method.getName()) {
+                case "isOpen" -> open;
+                case "getRemote" -> remote;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> null;
+              });
+    }
+  }
+
+  private final ConnectionManager connections = new ConnectionManager();
+
+  @AfterEach
+  public void tearDown() {
+    connections.close();
+  }
+
+  @Test
+  public void broadcastSkipsTheSendersToken() {
+    StubSession white = new StubSession();
+    StubSession black = new StubSession();
+    connections.add(1, "white", white.session);
+    connections.add(1, "black", black.session);
+
+    connections.broadcast(1, new NotificationMessage("hello"), "white");
+
+    assertEquals(0, white.received.size());
+    assertEquals(1, black.received.size());
+  }
+
+  @Test
+  public void closingASessionRemovesItEverywhere() {
+    StubSession player = new StubSession();
+    connections.add(1, "token", player.session);
+    connections.add(2, "token", player.session);
+
+    connections.remove(player.session);
+
+    assertEquals(0, connections.getConnectionCount());
+    assertEquals(0, connections.getGameCount());
+    assertEquals(Set.of(), connections.getSessions("token"));
+    assertEquals(Set.of(), connections.getSubscriptions(player.session));
+  }
+
+  @Test
+  public void leavingOneGameKeepsTheOthers() {
+    StubSession player = new StubSession();
+    connections.add(1, "token", player.session);
+    connections.add(2, "token", player.session);
+
+    connections.remove(1, "token", player.session);
+
+    assertEquals(Set.of(new ConnectionManager.Subscription(2, "token")),
+            connections.getSubscriptions(player.session));
+    assertEquals(Set.of(player.session), connections.getSessions("token"));
+    assertEquals(1, connections.getGameCount());
+  }
+
+  @Test
+  public void reconnectingWithTheSameTokenReplacesTheOldSession() {
+    StubSession first = new StubSession();
+    StubSession second = new StubSession();
+    connections.add(1, "token", first.session);
+    connections.add(1, "token", second.session);
+
+    connections.broadcast(1, new NotificationMessage("hello"), null);
+
+    assertEquals(0, first.received.size());
+    assertEquals(1, second.received.size());
+    assertEquals(Set.of(), connections.getSubscriptions(first.session));
+    assertEquals(Set.of(second.session), connections.getSessions("token"));
+  }
+
+  @Test
+  public void sweepRemovesSessionsThatClosedQuietly() {
+    StubSession open = new StubSession();
+    StubSession closed = new StubSession();
+    connections.add(1, "open", open.session);
+    connections.add(1, "closed", closed.session);
+    closed.open = false;
+
+    connections.sweep();
+
+    assertEquals(1, connections.getConnectionCount());
+    assertEquals(Set.of(), connections.getSessions("closed"));
+    assertEquals(Set.of(open.session), connections.getSessions("open"));
+  }
+
+  @Test
+  public void churnLeavesNothingBehind() {
+    for (int i = 0; i < 1000; i++) {
+      StubSession session = new StubSession();
+      connections.add(i % 10, "token" + i, session.session);
+      connections.send(session.session, new NotificationMessage("hello"));
+      if (i % 2 == 0) {
+        connections.remove(session.session);
+      } else {
+        session.open = false;
+      }
+    }
+    connections.sweep();
+
+    assertEquals(0, connections.getConnectionCount());
+    assertEquals(0, connections.getGameCount());
+    assertEquals(0, connections.getOutboundQueueDepth());
+  }
+}
@@ -0,0 +1,96 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameExecutorTests {
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void runsOneGamesTasksInOrderWithoutOverlap() throws InterruptedException {
+    GameExecutor executor = new GameExecutor(pool);
+    List<Integer> ran = new CopyOnWriteArrayList<>();
+    AtomicInteger running = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(1000);
+
+    for (int i = 0; i < 1000; i++) {
+      int task = i;
+      executor.submit(1, () -> {
+        assertEquals(1, running.incrementAndGet());
+        ran.add(task);
+        running.decrementAndGet();
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(IntStream.range(0, 1000).boxed().toList(), ran);
+  }
+
+  @Test
+  public void runsDifferentGamesInParallel() throws InterruptedException {
+    GameExecutor executor = new GameExecutor(pool);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    CountDownLatch done = new CountDownLatch(2);
+
+    for (int gameID = 1; gameID <= 2; gameID++) {
+      executor.submit(gameID, () -> {
+        bothStarted.countDown();
+        try {
+          if (bothStarted.await(10, TimeUnit.SECONDS)) {
+            done.countDown();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void idleGamesAreForgotten() throws InterruptedException {
+    GameExecutor executor = new GameExecutor(pool);
+    CountDownLatch done = new CountDownLatch(100);
+    for (int gameID = 0; gameID < 100; gameID++) {
+      executor.submit(gameID, done::countDown);
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (executor.activeGames() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, executor.activeGames());
+  }
+
+  @Test
+  public void failingTaskDoesNotStopTheGame() throws InterruptedException {
+    GameExecutor executor = new GameExecutor(pool);
+    CountDownLatch done = new CountDownLatch(1);
+    executor.submit(1, () -> {
+      throw new IllegalStateException("boom");
+    });
+    executor.submit(1, done::countDown);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+}
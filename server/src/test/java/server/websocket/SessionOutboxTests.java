@@ -0,0 +1,134 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static websocket.messages.ServerMessage.ServerMessageType.*;
+
+public class SessionOutboxTests {
+
+  /**
+   * A session whose writes stay pending until the test finishes them
+   */
+  private static class StalledSession {
+    private final List<String> written = new ArrayList<>();
+    private final Deque<WriteCallback> pending = new ArrayDeque<>();
+    private boolean closed;
+    private final Session session;
+
+    StalledSession() {
+      RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+              new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                if (method.getName().equals("sendString")) {
+                  written.add((String) args[0]);
+                  pending.add((WriteCallback) args[1]);
+                }
+                return null;
+              });
+      session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+              (proxy, method, args) -> switch (method.getName()) {
+                case "isOpen" -> !closed;
+                case "getRemote" -> remote;
+                case "close" -> {
+                  closed = true;
+                  yield null;
+                }
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> null;
+              });
+    }
+
+    void finishWrites() {
+      while (!pending.isEmpty()) {
+        pending.poll().writeSuccess();
+      }
+    }
+  }
+
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong disconnects = new AtomicLong();
+
+  private SessionOutbox outbox(StalledSession stalled, SessionOutbox.OverflowPolicy policy) {
+    return new SessionOutbox(stalled.session, 3, policy, queued, dropped, disconnects);
+  }
+
+  @Test
+  public void writesOneMessageAtATimeInOrder() {
+    StalledSession stalled = new StalledSession();
+    SessionOutbox outbox = outbox(stalled, SessionOutbox.OverflowPolicy.DROP_OLDEST);
+    outbox.send(NOTIFICATION, "first");
+    outbox.send(NOTIFICATION, "second");
+    outbox.send(NOTIFICATION, "third");
+
+    assertEquals(List.of("first"), stalled.written);
+    assertEquals(2, outbox.getQueueDepth());
+    assertEquals(2, queued.get());
+
+    stalled.finishWrites();
+    assertEquals(List.of("first", "second", "third"), stalled.written);
+    assertEquals(0, queued.get());
+  }
+
+  @Test
+  public void dropOldestDiscardsNotificationsBeforeBoards() {
+    StalledSession stalled = new StalledSession();
+    SessionOutbox outbox = outbox(stalled, SessionOutbox.OverflowPolicy.DROP_OLDEST);
+    outbox.send(NOTIFICATION, "in flight");
+    outbox.send(LOAD_GAME, "board");
+    outbox.send(NOTIFICATION, "old");
+    outbox.send(NOTIFICATION, "newer");
+    outbox.send(NOTIFICATION, "newest");
+
+    assertEquals(3, outbox.getQueueDepth());
+    assertEquals(1, dropped.get());
+    stalled.finishWrites();
+    assertEquals(List.of("in flight", "board", "newer", "newest"), stalled.written);
+  }
+
+  @Test
+  public void coalesceKeepsOnlyTheLatestBoard() {
+    StalledSession stalled = new StalledSession();
+    SessionOutbox outbox = outbox(stalled, SessionOutbox.OverflowPolicy.COALESCE_LOAD);
+    outbox.send(LOAD_GAME, "in flight");
+    for (int i = 0; i < 10; i++) {
+      outbox.send(NOTIFICATION, "move " + i);
+      outbox.send(LOAD_GAME, "board " + i);
+    }
+
+    assertEquals(3, outbox.getQueueDepth());
+    assertEquals(17, dropped.get());
+    stalled.finishWrites();
+    assertEquals(List.of("in flight", "move 8", "move 9", "board 9"), stalled.written);
+  }
+
+  @Test
+  public void disconnectClosesASessionThatFallsBehind() {
+    StalledSession stalled = new StalledSession();
+    SessionOutbox outbox = outbox(stalled, SessionOutbox.OverflowPolicy.DISCONNECT);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(outbox.send(NOTIFICATION, "message " + i));
+    }
+    assertFalse(outbox.send(NOTIFICATION, "one too many"));
+
+    assertTrue(stalled.closed);
+    assertEquals(1, disconnects.get());
+    assertEquals(0, outbox.getQueueDepth());
+    assertEquals(0, queued.get());
+    assertFalse(outbox.send(NOTIFICATION, "after close"));
+    stalled.finishWrites();
+    assertEquals(List.of("message 0"), stalled.written);
+  }
+}
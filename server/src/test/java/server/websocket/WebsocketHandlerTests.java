@@ -0,0 +1,207 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import model.GameData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import service.GameService;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MoveCommand;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebsocketHandlerTests {
+
+  private static final int GAMES = 50;
+  private static final int CYCLES = 20;
+
+  private final ExecutorService commandPool = Executors.newFixedThreadPool(8);
+  private final ExecutorService clients = Executors.newFixedThreadPool(GAMES);
+
+  @AfterEach
+  public void tearDown() {
+    commandPool.shutdownNow();
+    clients.shutdownNow();
+  }
+
+  /**
+   * Every game's players send all of their moves at once, from many threads at
+   * the same time. Each game must end where its move cycle started, with every
+   * move accepted.
+   */
+  @Test
+  public void concurrentMovesAcrossManyGames() throws Exception {
+    AuthDAO authDAO = new AuthDAO();
+    GameDAO gameDAO = new GameDAO();
+    WebsocketHandler handler = new WebsocketHandler(new ConnectionManager(), new GameService(authDAO, gameDAO),
+            authDAO, gameDAO, commandPool);
+    Gson gson = new Gson();
+
+    int moves = GAMES * CYCLES * 4;
+    CountDownLatch loaded = new CountDownLatch(moves * 2 + GAMES * 2);
+    Queue<String> errors = new ConcurrentLinkedQueue<>();
+    List<Integer> gameIDs = new ArrayList<>();
+    List<List<String>> scripts = new ArrayList<>();
+    List<Session[]> players = new ArrayList<>();
+
+    for (int game = 0; game < GAMES; game++) {
+      String whiteToken = authDAO.createAuth("white" + game);
+      String blackToken = authDAO.createAuth("black" + game);
+      int gameID = gameDAO.createGame("game" + game);
+      gameDAO.updateGame(new GameData(gameID, "white" + game, "black" + game, "game" + game, new ChessGame()));
+      Session white = recordingSession(loaded, errors);
+      Session black = recordingSession(loaded, errors);
+      handler.onMessage(white, gson.toJson(new ConnectCommand(whiteToken, gameID)));
+      handler.onMessage(black, gson.toJson(new ConnectCommand(blackToken, gameID)));
+
+      List<String> script = new ArrayList<>();
+      for (int cycle = 0; cycle < CYCLES; cycle++) {
+        script.add(gson.toJson(new MoveCommand(whiteToken, gameID, move(1, 7, 3, 6))));
+        script.add(gson.toJson(new MoveCommand(blackToken, gameID, move(8, 7, 6, 6))));
+        script.add(gson.toJson(new MoveCommand(whiteToken, gameID, move(3, 6, 1, 7))));
+        script.add(gson.toJson(new MoveCommand(blackToken, gameID, move(6, 6, 8, 7))));
+      }
+      gameIDs.add(gameID);
+      scripts.add(script);
+      players.add(new Session[]{white, black});
+    }
+
+    CountDownLatch start = new CountDownLatch(1);
+    for (int game = 0; game < GAMES; game++) {
+      List<String> script = scripts.get(game);
+      Session[] sessions = players.get(game);
+      clients.execute(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < script.size(); i++) {
+            handler.onMessage(sessions[i % 2], script.get(i));
+          }
+        } catch (Exception e) {
+          errors.add(e.toString());
+        }
+      });
+    }
+    start.countDown();
+
+    assertTrue(loaded.await(30, TimeUnit.SECONDS), "Not every move was answered: " + errors);
+    assertEquals(List.of(), List.copyOf(errors));
+    for (int gameID : gameIDs) {
+      assertEquals(new ChessGame(), gameDAO.getGame(gameID).game(), "Game " + gameID + " lost a move");
+    }
+  }
+
+  /**
+   * A move is serialized once for all observers, and sent without waiting for any
+   * of them to finish receiving it
+   */
+  @Test
+  public void broadcastsTheSameTextToEveryObserver() throws Exception {
+    AuthDAO authDAO = new AuthDAO();
+    GameDAO gameDAO = new GameDAO();
+    WebsocketHandler handler = new WebsocketHandler(new ConnectionManager(), new GameService(authDAO, gameDAO),
+            authDAO, gameDAO);
+    Gson gson = new Gson();
+    String whiteToken = authDAO.createAuth("white");
+    int gameID = gameDAO.createGame("game");
+    gameDAO.updateGame(new GameData(gameID, "white", "black", "game", new ChessGame()));
+    handler.onMessage(capturingSession(new ArrayList<>()), gson.toJson(new ConnectCommand(whiteToken, gameID)));
+
+    List<List<Object[]>> observers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      List<Object[]> sent = new ArrayList<>();
+      observers.add(sent);
+      handler.onMessage(capturingSession(sent),
+              gson.toJson(new ConnectCommand(authDAO.createAuth("observer" + i), gameID)));
+    }
+    observers.forEach(List::clear);
+
+    handler.onMessage(capturingSession(new ArrayList<>()),
+            gson.toJson(new MoveCommand(whiteToken, gameID, move(1, 7, 3, 6))));
+
+    Object[] first = observers.get(0).get(0);
+    for (List<Object[]> sent : observers) {
+      assertEquals(2, sent.size());
+      for (int i = 0; i < sent.size(); i++) {
+        assertSame(observers.get(0).get(i)[0], sent.get(i)[0]);
+        assertEquals(2, sent.get(i).length, "Broadcasts should use the asynchronous send");
+      }
+    }
+    assertTrue(((String) first[0]).contains("NOTIFICATION"));
+  }
+
+  private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+    return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+  }
+
+  /**
+   * A session that keeps the arguments of everything sent to it, and finishes
+   * each write at once
+   */
+  private static Session capturingSession(List<Object[]> sent) {
+    RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+            new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+              if (method.getName().equals("sendString")) {
+                sent.add(args);
+                if (args.length > 1) {
+                  ((WriteCallback) args[1]).writeSuccess();
+                }
+              }
+              return null;
+            });
+    return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+            (proxy, method, args) -> switch (method.getName()) {
+              case "isOpen" -> true;
+              case "getRemote" -> remote;
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              default -> null;
+            });
+  }
+
+  /**
+   * A session that counts down for every game it is sent, and keeps any errors
+   */
+  private static Session recordingSession(CountDownLatch loaded, Queue<String> errors) {
+    Gson gson = new Gson();
+    RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+            new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+              if (method.getName().equals("sendString")) {
+                Map<?, ?> message = gson.fromJson((String) args[0], Map.class);
+                if ("ERROR".equals(message.get("serverMessageType"))) {
+                  errors.add((String) args[0]);
+                } else if ("LOAD_GAME".equals(message.get("serverMessageType"))) {
+                  loaded.countDown();
+                }
+                ((WriteCallback) args[1]).writeSuccess();
+              }
+              return null;
+            });
+    return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+            (proxy, method, args) -> switch (method.getName()) {
+              case "isOpen" -> true;
+              case "getRemote" -> remote;
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              default -> null;
+            });
+  }
+}
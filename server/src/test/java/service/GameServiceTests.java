@@ -11,6 +11,8 @@ import model.listgames.ListGamesRequest;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 
@@ -67,6 +69,63 @@ public class GameServiceTests {
     gameDAO.deleteGames();
   }
 
+  @Test
+  void listGameSummariesTest() throws DataAccessException {
+    GameDAO gameDAO = new GameDAO();
+    AuthDAO authDAO = new AuthDAO();
+    GameService gameService = new GameService(authDAO, gameDAO);
+
+    String authToken = authDAO.createAuth("Username");
+    int gameID = gameDAO.createGame("Game1");
+    gameService.joinGame(new JoinGameRequest("WHITE", gameID), authToken);
+
+    var response = gameService.listGames(new ListGamesRequest(authToken, true));
+    Assertions.assertEquals(1, response.games().size());
+    GameData summary = response.games().iterator().next();
+    Assertions.assertEquals(new GameData(gameID, "Username", null, "Game1", null), summary);
+
+    gameDAO.deleteGames();
+  }
+
+  @Test
+  void listGamesByPage() throws DataAccessException {
+    GameDAO gameDAO = new GameDAO();
+    AuthDAO authDAO = new AuthDAO();
+    GameService gameService = new GameService(authDAO, gameDAO);
+
+    String authToken = authDAO.createAuth("Username");
+    for (int i = 0; i < 5; i++) {
+      int gameID = gameDAO.createGame("Game" + i);
+      if (i % 2 == 0) {
+        gameService.joinGame(new JoinGameRequest("WHITE", gameID), authToken);
+      }
+    }
+
+    List<Integer> listed = new ArrayList<>();
+    Integer cursor = null;
+    do {
+      var response = gameService.listGames(new ListGamesRequest(authToken, true, cursor, 2, false, null, null));
+      Assertions.assertTrue(response.games().size() <= 2);
+      response.games().forEach(game -> listed.add(game.gameID()));
+      cursor = response.nextCursor();
+    } while (cursor != null);
+    Assertions.assertEquals(5, listed.size());
+    Assertions.assertEquals(listed.stream().sorted().toList(), listed);
+
+    var joined = gameService.listGames(new ListGamesRequest(authToken, true, null, null, false, "Username", null));
+    Assertions.assertEquals(3, joined.games().size());
+    Assertions.assertNull(joined.nextCursor());
+
+    var named = gameService.listGames(new ListGamesRequest(authToken, false, null, null, true, null, "Game1"));
+    Assertions.assertEquals(1, named.games().size());
+    Assertions.assertNotNull(named.games().iterator().next().game());
+
+    ListGamesRequest badLimit = new ListGamesRequest(authToken, false, null, 0, false, null, null);
+    Assertions.assertThrows(DataAccessException.class, () -> gameService.listGames(badLimit));
+
+    gameDAO.deleteGames();
+  }
+
   @Test
   void listGamesFail() throws DataAccessException {
     GameDAO gameDAO = new GameDAO();
@@ -12,6 +12,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class UserServiceTests {
   private UserDAO userDAO;
@@ -72,6 +74,25 @@ public class UserServiceTests {
     Assertions.assertThrows(DataAccessException.class, () -> userService.loginUser(nonExistentUserRequest));
   }
 
+  @Test
+  void hashesOnTheGivenExecutor() throws DataAccessException {
+    ExecutorService hashPool=Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-hash"));
+    String[] hashThread=new String[1];
+    UserService pooled=new UserService(authDAO, userDAO, task -> hashPool.execute(() -> {
+      hashThread[0]=Thread.currentThread().getName();
+      task.run();
+    }));
+    try {
+      pooled.registerUser(new RegisterRequest("Username", "Password", "Email@Email"));
+      Assertions.assertEquals("test-hash", hashThread[0]);
+      Assertions.assertNotNull(pooled.loginUser(new LoginRequest("Username", "Password")).authToken());
+      Assertions.assertThrows(DataAccessException.class,
+              () -> pooled.loginUser(new LoginRequest("Username", "WrongPassword")));
+    } finally {
+      hashPool.shutdown();
+    }
+  }
+
   @Test
   void logoutTest() throws DataAccessException {
     String authToken=authDAO.createAuth("Username");
@@ -0,0 +1,130 @@
+package chess;
+
+/**
+ * Precomputed attack tables and bit helpers for the 64-bit board masks kept by
+ * {@link ChessBoard}.
+ * <p>
+ * Square indexes run from 0 (row 1, column 1) to 63 (row 8, column 8), so
+ * square = (row - 1) * 8 + (column - 1).
+ */
+final class Bitboards {
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final int NORTH = 0, SOUTH = 1, EAST = 2, WEST = 3;
+    private static final int NORTH_EAST = 4, NORTH_WEST = 5, SOUTH_EAST = 6, SOUTH_WEST = 7;
+    private static final int[] ROW_STEPS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] COL_STEPS = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final long[][] RAYS = new long[8][64];
+
+    static {
+        int[] knightRows = {-2, -2, -1, -1, 1, 1, 2, 2};
+        int[] knightCols = {-1, 1, -2, 2, -2, 2, -1, 1};
+
+        for (int square = 0; square < 64; square++) {
+            int row = row(square);
+            int col = column(square);
+
+            for (int i = 0; i < 8; i++) {
+                KNIGHT_ATTACKS[square] |= bit(row + knightRows[i], col + knightCols[i]);
+            }
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (i != 0 || j != 0) {
+                        KING_ATTACKS[square] |= bit(row + i, col + j);
+                    }
+                }
+            }
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+
+            for (int dir = 0; dir < 8; dir++) {
+                int newRow = row + ROW_STEPS[dir];
+                int newCol = col + COL_STEPS[dir];
+                while (isOnBoard(newRow, newCol)) {
+                    RAYS[dir][square] |= bit(newRow, newCol);
+                    newRow += ROW_STEPS[dir];
+                    newCol += COL_STEPS[dir];
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /**
+     * @return the mask for the given square, or 0 if it is off the board
+     */
+    static long bit(int row, int col) {
+        return isOnBoard(row, col) ? 1L << square(row, col) : 0L;
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return positiveRay(NORTH, square, occupied) | positiveRay(EAST, square, occupied)
+                | negativeRay(SOUTH, square, occupied) | negativeRay(WEST, square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return positiveRay(NORTH_EAST, square, occupied) | positiveRay(NORTH_WEST, square, occupied)
+                | negativeRay(SOUTH_EAST, square, occupied) | negativeRay(SOUTH_WEST, square, occupied);
+    }
+
+    /**
+     * Squares attacked by a non-pawn piece standing on the given square
+     */
+    static long attacks(ChessPiece.PieceType type, int square, long occupied) {
+        switch (type) {
+            case KING:
+                return KING_ATTACKS[square];
+            case QUEEN:
+                return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+            case BISHOP:
+                return bishopAttacks(square, occupied);
+            case KNIGHT:
+                return KNIGHT_ATTACKS[square];
+            case ROOK:
+                return rookAttacks(square, occupied);
+            default:
+                throw new IllegalArgumentException("Pawn attacks depend on color: " + type);
+        }
+    }
+
+    // Rays that grow towards higher square indexes stop at their lowest blocker
+    private static long positiveRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    // Rays that grow towards lower square indexes stop at their highest blocker
+    private static long negativeRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return ray;
+    }
+}
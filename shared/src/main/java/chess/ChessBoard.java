@@ -11,6 +11,20 @@ import java.util.Arrays;
 public class ChessBoard implements Cloneable {
     private ChessPiece[][] squares = new ChessPiece[8][8];
 
+    // One occupancy mask per piece color and type, indexed by ChessPiece.index(), and
+    // one per color serving as that team's piece list. Not serialized; rebuilt from
+    // squares whenever that array is replaced (e.g. by Gson).
+    private transient long[] pieceMasks = new long[12];
+    private transient long[] colorMasks = new long[2];
+    private transient long zobristKey;
+    private transient ChessPiece[][] indexedSquares;
+
+    // Undo records returned by applyMove pack the moved piece, the captured piece
+    // and a castling flag into one int so legality probes allocate nothing.
+    private static final int MOVED_SHIFT = 4;
+    private static final int PIECE_BITS = 0xF;
+    private static final int CASTLED = 1 << 8;
+
     public ChessBoard() {
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
@@ -21,13 +35,16 @@ public class ChessBoard implements Cloneable {
 
     @Override
     public ChessBoard clone() {
+        ensureIndexed();
         ChessBoard clonedBoard = new ChessBoard();
 
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                clonedBoard.addPiece(new ChessPosition(row+1, col+1), this.getPiece(new ChessPosition(row+1, col+1)));
-            }
+        for (int col = 0; col < 8; col++) {
+            clonedBoard.squares[col] = squares[col].clone();
         }
+        clonedBoard.pieceMasks = pieceMasks.clone();
+        clonedBoard.colorMasks = colorMasks.clone();
+        clonedBoard.zobristKey = zobristKey;
+        clonedBoard.indexedSquares = clonedBoard.squares;
         return clonedBoard;
     }
 
@@ -38,7 +55,213 @@ public class ChessBoard implements Cloneable {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getColumn() - 1][position.getRow() - 1]= piece;
+        setPiece(Bitboards.square(position.getRow(), position.getColumn()), piece);
+    }
+
+    /**
+     * Places a piece on a square index, keeping the occupancy masks in step
+     *
+     * @param square the square index, see {@link Bitboards}
+     * @param piece  the piece to place, or null to empty the square
+     */
+    void setPiece(int square, ChessPiece piece) {
+        ensureIndexed();
+        int col = square & 7;
+        int row = square >>> 3;
+        ChessPiece old = squares[col][row];
+        long mask = 1L << square;
+        if (old != null) {
+            pieceMasks[old.index()] &= ~mask;
+            colorMasks[old.getTeamColor().ordinal()] &= ~mask;
+            zobristKey ^= Zobrist.PIECE_SQUARE[old.index()][square];
+        }
+        if (piece != null) {
+            pieceMasks[piece.index()] |= mask;
+            colorMasks[piece.getTeamColor().ordinal()] |= mask;
+            zobristKey ^= Zobrist.PIECE_SQUARE[piece.index()][square];
+        }
+        squares[col][row] = piece;
+    }
+
+    /**
+     * @return the piece on a square index, or null if it is empty
+     */
+    ChessPiece getPiece(int square) {
+        return squares[square & 7][square >>> 3];
+    }
+
+    /**
+     * @return the mask of squares holding pieces of the given color and type
+     */
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceMasks[ChessPiece.index(color, type)];
+    }
+
+    /**
+     * The squares holding pieces of the given color. Walking the set bits visits
+     * each of the team's pieces once, and the mask is a copy, so the board can be
+     * changed while iterating.
+     *
+     * @return the mask of squares holding pieces of the given color
+     */
+    long occupancy(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorMasks[color.ordinal()];
+    }
+
+    /**
+     * @return the mask of all occupied squares
+     */
+    long occupancy() {
+        ensureIndexed();
+        return colorMasks[0] | colorMasks[1];
+    }
+
+    /**
+     * Gets the Zobrist key of the pieces on this board. It is kept up to date as
+     * pieces are added and moved, so reading it is O(1). Equal boards always have
+     * equal keys.
+     *
+     * @return the 64-bit Zobrist key
+     */
+    public long getZobristKey() {
+        ensureIndexed();
+        return zobristKey;
+    }
+
+    /**
+     * @return the square index of the given team's king, or -1 if it has none
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long kings = pieces(color, ChessPiece.PieceType.KING);
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Determines if any piece of the given color attacks a square. Works outward
+     * from the square along rays and knight, pawn and king offsets rather than
+     * generating the attacker's moves.
+     *
+     * @param square  the square index, see {@link Bitboards}
+     * @param byColor the attacking team
+     * @return True if a piece of that team could capture on the square
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor byColor) {
+        if ((Bitboards.KNIGHT_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KNIGHT)) != 0
+                || (Bitboards.KING_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        // A pawn attacks this square exactly when a defending pawn here would attack the pawn
+        int defender = byColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK.ordinal()
+                : ChessGame.TeamColor.WHITE.ordinal();
+        if ((Bitboards.PAWN_ATTACKS[defender][square] & pieces(byColor, ChessPiece.PieceType.PAWN)) != 0) {
+            return true;
+        }
+        long occupied = occupancy();
+        long queens = pieces(byColor, ChessPiece.PieceType.QUEEN);
+        return (Bitboards.rookAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.ROOK) | queens)) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.BISHOP) | queens)) != 0;
+    }
+
+    /**
+     * Plays a move on this board in place. A king moving two columns also moves the
+     * matching rook, as {@link ChessGame#makeMove} does. No legality checks are made.
+     *
+     * @param move the move to play; its start square must hold a piece
+     * @return an undo record to hand back to {@link #undoMove}
+     */
+    int applyMove(ChessMove move) {
+        return applyMove(toSquare(move.getStartPosition()), toSquare(move.getEndPosition()),
+                move.getPromotionPiece());
+    }
+
+    /**
+     * Plays a {@link PackedMove packed move} in place, see {@link #applyMove(ChessMove)}
+     */
+    int applyMove(int move) {
+        return applyMove(PackedMove.from(move), PackedMove.to(move), PackedMove.promotion(move));
+    }
+
+    int applyMove(int from, int to, ChessPiece.PieceType promotion) {
+        ChessPiece piece = getPiece(from);
+        ChessPiece captured = getPiece(to);
+        int undo = (piece.index() + 1) << MOVED_SHIFT | (captured == null ? 0 : captured.index() + 1);
+
+        setPiece(to, promotion == null ? piece : ChessPiece.of(piece.getTeamColor(), promotion));
+        setPiece(from, null);
+
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            int rookFrom = castlingRookFrom(from, to);
+            ChessPiece rook = getPiece(rookFrom);
+            if (rook != null) {
+                setPiece(castlingRookTo(from, to), rook);
+                setPiece(rookFrom, null);
+                undo |= CASTLED;
+            }
+        }
+        return undo;
+    }
+
+    /**
+     * Reverts a move played with {@link #applyMove}. Moves must be undone in the
+     * reverse order they were applied.
+     */
+    void undoMove(ChessMove move, int undo) {
+        undoMove(toSquare(move.getStartPosition()), toSquare(move.getEndPosition()), undo);
+    }
+
+    /**
+     * Reverts a {@link PackedMove packed move} played with {@link #applyMove(int)}
+     */
+    void undoMove(int move, int undo) {
+        undoMove(PackedMove.from(move), PackedMove.to(move), undo);
+    }
+
+    void undoMove(int from, int to, int undo) {
+        if ((undo & CASTLED) != 0) {
+            int rookTo = castlingRookTo(from, to);
+            setPiece(castlingRookFrom(from, to), getPiece(rookTo));
+            setPiece(rookTo, null);
+        }
+        int captured = undo & PIECE_BITS;
+        setPiece(from, ChessPiece.of(((undo >>> MOVED_SHIFT) & PIECE_BITS) - 1));
+        setPiece(to, captured == 0 ? null : ChessPiece.of(captured - 1));
+    }
+
+    private static int castlingRookFrom(int from, int to) {
+        return to < from ? from - (from & 7) : from - (from & 7) + 7;
+    }
+
+    private static int castlingRookTo(int from, int to) {
+        return to < from ? from - (from & 7) + 3 : from - (from & 7) + 5;
+    }
+
+    private static int toSquare(ChessPosition position) {
+        return Bitboards.square(position.getRow(), position.getColumn());
+    }
+
+    private void ensureIndexed() {
+        if (indexedSquares != squares) {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() {
+        pieceMasks = new long[12];
+        colorMasks = new long[2];
+        zobristKey = 0;
+        for (int col = 0; col < 8; col++) {
+            for (int row = 0; row < 8; row++) {
+                ChessPiece piece = squares[col][row];
+                if (piece != null) {
+                    pieceMasks[piece.index()] |= 1L << (row * 8 + col);
+                    colorMasks[piece.getTeamColor().ordinal()] |= 1L << (row * 8 + col);
+                    zobristKey ^= Zobrist.PIECE_SQUARE[piece.index()][row * 8 + col];
+                }
+            }
+        }
+        indexedSquares = squares;
     }
 
     /**
@@ -69,30 +292,30 @@ public class ChessBoard implements Cloneable {
     }
 
     private void setWhitePieces() {
-        addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
         }
     }
 
     private void setBlackPieces() {
-        addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 6), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 7), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 
@@ -101,19 +324,19 @@ public class ChessBoard implements Cloneable {
         if (this == o) {return true;}
         if (o == null || getClass() != o.getClass()) {return false;}
         ChessBoard that=(ChessBoard) o;
-        return Arrays.deepEquals(squares, that.squares);
+        return getZobristKey() == that.getZobristKey() && Arrays.deepEquals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(squares);
+        return Long.hashCode(getZobristKey());
     }
 
     @Override
     public String toString() {
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
-                System.out.print(this.getPiece(new ChessPosition(i+1, j+1)) + " ");
+                System.out.print(this.getPiece(ChessPosition.of(i+1, j+1)) + " ");
             }
             System.out.println();
         }
@@ -13,6 +13,7 @@ import java.util.Objects;
 public class ChessGame {
     private TeamColor teamColor;
     private ChessBoard board;
+    private transient LegalMoveTable[] legalMoveTables = {new LegalMoveTable(), new LegalMoveTable()};
 
     public ChessGame() {
         this.board=new ChessBoard();
@@ -20,6 +21,11 @@ public class ChessGame {
         this.board.resetBoard();
     }
 
+    ChessGame(ChessBoard board, TeamColor teamColor) {
+        this.board=board;
+        this.teamColor=teamColor;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -34,6 +40,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         this.teamColor=team;
+        invalidateLegalMoves();
     }
 
     /**
@@ -56,60 +63,91 @@ public class ChessGame {
         if (chessPiece == null) {
             return null;
         }
-        Collection<ChessMove> possibleMoves=chessPiece.pieceMoves(board, startPosition);
+        int square=Bitboards.square(startPosition.getRow(), startPosition.getColumn());
+        MoveList legalMoves=legalMoves(chessPiece.getTeamColor());
         ArrayList<ChessMove> validMoves=new ArrayList<>();
 
-        for (ChessMove move : possibleMoves) {
-            try {
-                if (moveIsValid(move)) {
-                    validMoves.add(move);
-                }
-            } catch (InvalidMoveException e) {
-                throw new RuntimeException(e);
+        for (int i=0; i < legalMoves.size(); i++) {
+            int move=legalMoves.get(i);
+            if (PackedMove.from(move) == square) {
+                validMoves.add(new ChessMove(startPosition, ChessPosition.of(PackedMove.to(move)),
+                        PackedMove.promotion(move)));
             }
         }
 
-        if (chessPiece.getPieceType() == ChessPiece.PieceType.KING) {
-            ChessMove queenSide=new ChessMove(startPosition, new ChessPosition(startPosition.getRow(),
-                    startPosition.getColumn() - 2), null);
-            ChessMove kingSide=new ChessMove(startPosition, new ChessPosition(startPosition.getRow(),
-                    startPosition.getColumn() + 2), null);
+        return validMoves;
+    }
+
+    /**
+     * Gets the legal moves for a team in the current position, generating them
+     * only if the cached table is missing or stale
+     *
+     * @param teamColor the team to get moves for
+     * @return the cached table; callers must not modify it
+     */
+    private MoveList legalMoves(TeamColor teamColor) {
+        LegalMoveTable table=legalMoveTables[teamColor.ordinal()];
+        if (!table.isFor(board)) {
+            table.moves.clear();
+            legalMoves(teamColor, table.moves);
+            table.board=board;
+            table.key=board.getZobristKey();
         }
+        return table.moves;
+    }
 
-        return validMoves;
+    private void invalidateLegalMoves() {
+        for (LegalMoveTable table : legalMoveTables) {
+            table.board=null;
+        }
     }
 
     /**
-     * Gets a valid moves for a piece at the given location
+     * Appends every legal move for a team to a buffer as {@link PackedMove packed
+     * moves}. Allocates nothing once the buffer has grown to size.
      *
-     * @param move the chess move being tested
-     * @return If the move being tested is valid
-     * @throws RuntimeException if an error occurs while testing
+     * @param teamColor the team to generate moves for
+     * @param moves     the buffer to append to
      */
-    private boolean moveIsValid(ChessMove move) throws InvalidMoveException {
-        ChessBoard oldBoard=board.clone();
-        try {
-            ChessPiece piece=board.getPiece(move.getStartPosition());
-            //System.out.println(board.toString());
-            //System.out.println();
-            if (move.getPromotionPiece() == null) {
-                board.addPiece(move.getEndPosition(), piece);
-            } else {
-                board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+    void legalMoves(TeamColor teamColor, MoveList moves) {
+        for (long pieces=board.occupancy(teamColor); pieces != 0; pieces&=pieces - 1) {
+            int square=Long.numberOfTrailingZeros(pieces);
+            int first=moves.size();
+            board.getPiece(square).pieceMoves(board, square, moves);
+
+            int kept=first;
+            for (int i=first; i < moves.size(); i++) {
+                int move=moves.get(i);
+                if (moveIsValid(move, teamColor)) {
+                    moves.set(kept++, move);
+                }
             }
+            moves.truncate(kept);
+        }
+    }
 
-            board.addPiece(move.getStartPosition(), null);
-            if (!isInCheck(piece.getTeamColor())) {
-                return true;
-            }
+    /**
+     * Tests a move by playing it on the board and taking it back again
+     *
+     * @param move the packed move being tested
+     * @param teamColor the team making the move
+     * @return If the move does not leave the team's king in check
+     */
+    private boolean moveIsValid(int move, TeamColor teamColor) {
+        int undo=board.applyMove(move);
+        boolean valid=!isInCheck(teamColor);
+        board.undoMove(move, undo);
+        return valid;
+    }
 
-            //this.board = oldBoard;
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        } finally {
-            this.board=oldBoard;
-        }
-        return false;
+    /**
+     * Determines if the given team has at least one legal move
+     *
+     * @param teamColor the team to look for moves for
+     * @return True if any piece of the team can move
+     */
+    private boolean hasValidMove(TeamColor teamColor) {
+        return legalMoves(teamColor).size() > 0;
     }
 
 
@@ -142,7 +180,7 @@ public class ChessGame {
             throw new InvalidMoveException("Error: Invalid move");
         }
 
-        makeMoveInternal(move, piece);
+        makeMoveInternal(move);
         switchTurn();
     }
 
@@ -185,37 +223,24 @@ public class ChessGame {
      * @return
      */
     private boolean isValidMove(ChessMove move) throws InvalidMoveException {
-        return validMoves(move.getStartPosition()).contains(move);
+        int packed=PackedMove.pack(move);
+        MoveList legalMoves=legalMoves(getTeamTurn());
+        for (int i=0; i < legalMoves.size(); i++) {
+            if ((legalMoves.get(i) & ~PackedMove.CAPTURE) == packed) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Makes the desired move
      *
      * @param move
-     * @param piece
      */
-    private void makeMoveInternal(ChessMove move, ChessPiece piece) {
-        if (piece.getPieceType() == ChessPiece.PieceType.KING &&
-                Math.abs(move.getEndPosition().getColumn() - move.getStartPosition().getColumn()) == 2) {
-            int row=piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8;
-            ChessPosition rookPosition=move.getEndPosition().getColumn() <
-                    move.getStartPosition().getColumn() ? new ChessPosition(row, 1) : new ChessPosition(row, 8);
-            ChessPosition newRookPosition=move.getEndPosition().getColumn() <
-                    move.getStartPosition().getColumn() ? new ChessPosition(row, 4) : new ChessPosition(row, 6);
-            board.addPiece(newRookPosition, board.getPiece(rookPosition));
-            board.addPiece(rookPosition, null);
-            ChessPosition newKingPosition=move.getEndPosition().getColumn() <
-                    move.getStartPosition().getColumn() ? new ChessPosition(row, 3) : new ChessPosition(row, 7);
-            board.addPiece(newKingPosition, piece);
-            board.addPiece(move.getStartPosition(), null);
-        } else {
-            if (move.getPromotionPiece() == null) {
-                board.addPiece(move.getEndPosition(), piece);
-            } else {
-                board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
-            }
-            board.addPiece(move.getStartPosition(), null);
-        }
+    private void makeMoveInternal(ChessMove move) {
+        board.applyMove(move);
+        invalidateLegalMoves();
     }
 
 
@@ -238,64 +263,12 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition checkKing = checkKingPosition(teamColor);
-        if (checkKing == null) {
+        int kingSquare = board.kingSquare(teamColor);
+        if (kingSquare < 0) {
             return false;
         }
-        Collection<ChessPosition> enemyPositions = findEnemyPositions(teamColor);
-        for (ChessPosition position : enemyPositions) {
-            ChessPiece enemyPiece = board.getPiece(position);
-            Collection<ChessMove> enemyMoves = enemyPiece.pieceMoves(board, position);
-            if (canCheckKing(enemyMoves, checkKing)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     *
-     * @param teamColor
-     * @return
-     */
-    private ChessPosition checkKingPosition(TeamColor teamColor) {
-        for (int row=1; row < 9; row++) {
-            for (int col=1; col < 9; col++) {
-                ChessPiece piece=board.getPiece(new ChessPosition(row, col));
-                if (piece != null && piece.getTeamColor() == teamColor &&
-                        piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return new ChessPosition(row, col);
-                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     *
-     * @param teamColor
-     * @return
-     */
-    private Collection<ChessPosition> findEnemyPositions(TeamColor teamColor) {
-        ArrayList<ChessPosition> enemyPositions = new ArrayList<>();
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-                if (piece != null && piece.getTeamColor() != teamColor) {
-                    enemyPositions.add(new ChessPosition(row, col));
-                }
-            }
-        }
-        return enemyPositions;
-    }
-
-    private boolean canCheckKing(Collection<ChessMove> enemyMoves, ChessPosition checkKing) {
-        for (ChessMove move : enemyMoves) {
-            if (move.getEndPosition().equals(checkKing)) {
-                return true;
-            }
-        }
-        return false;
+        TeamColor enemyColor = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return board.isSquareAttacked(kingSquare, enemyColor);
     }
 
     /**
@@ -305,34 +278,10 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        ChessPosition checkKing = checkKingPosition(teamColor);
-        if (checkKing == null) {
-            return false;
-        }
         if (!isInCheck(teamColor)) {
             return false;
         }
-        ChessPosition kingPosition = checkKingPosition(teamColor);
-        if (!validMoves(kingPosition).isEmpty()) {
-            return false;
-        }
-        ArrayList<ChessPosition> teamPositions = new ArrayList<>();
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    teamPositions.add(new ChessPosition(row, col));
-                }
-            }
-        }
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        for (ChessPosition position : teamPositions) {
-            moves.addAll((validMoves(position)));
-        }
-        if (!moves.isEmpty()) {
-            return false;
-        }
-        return true;
+        return !hasValidMove(teamColor);
     }
 
     /**
@@ -346,21 +295,7 @@ public class ChessGame {
         if (isInCheck(teamColor)) {
             return false;
         }
-        if (isInCheckmate(teamColor)) {
-            return false;
-        }
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    if (!validMoves(position).isEmpty()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return !hasValidMove(teamColor);
     }
 
     @Override
@@ -373,7 +308,19 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(teamColor, board);
+        return Long.hashCode(getZobristKey());
+    }
+
+    /**
+     * Gets the Zobrist key of this position: the board's key combined with the
+     * side to move. Positions that are equal always have equal keys, so it can be
+     * used to identify positions in caches or to spot repetitions.
+     *
+     * @return the 64-bit Zobrist key
+     */
+    public long getZobristKey() {
+        long key = board.getZobristKey();
+        return teamColor == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
     }
 
     /**
@@ -383,6 +330,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        invalidateLegalMoves();
     }
 
     /**
@@ -393,4 +341,18 @@ public class ChessGame {
     public ChessBoard getBoard() {
         return this.board;
     }
+
+    /**
+     * One team's legal moves for the board and position they were generated on.
+     * The Zobrist key also catches edits made directly through {@link #getBoard()}.
+     */
+    private static final class LegalMoveTable {
+        private final MoveList moves=new MoveList();
+        private ChessBoard board;
+        private long key;
+
+        private boolean isFor(ChessBoard current) {
+            return board == current && key == current.getZobristKey();
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package chess;
+
+/**
+ * A compact, versioned binary encoding of a {@link ChessGame}, for storing games
+ * without going through Gson.
+ * <p>
+ * Version 1 is 34 bytes: the version byte, a flags byte (bit 0 set when black is
+ * to move), then one nibble per square in square index order, low nibble first.
+ * A nibble is 0 for an empty square, otherwise {@link ChessPiece#index()} + 1.
+ */
+public final class ChessGameCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final int HEADER_BYTES = 2;
+    private static final int VERSION_1_BYTES = HEADER_BYTES + 32;
+    private static final int BLACK_TO_MOVE = 1;
+
+    private ChessGameCodec() {
+    }
+
+    /**
+     * Encodes a game in the current version of the format
+     *
+     * @param game the game to encode
+     * @return the encoded game
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[VERSION_1_BYTES];
+        bytes[0] = VERSION_1;
+        bytes[1] = (byte) (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0);
+
+        ChessBoard board = game.getBoard();
+        for (long occupied = board.occupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            int nibble = board.getPiece(square).index() + 1;
+            bytes[HEADER_BYTES + (square >>> 1)] |= (byte) ((square & 1) == 0 ? nibble : nibble << 4);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes a game written by any version of {@link #encode}
+     *
+     * @param bytes the encoded game
+     * @return a new game holding the decoded position
+     * @throws IllegalArgumentException if the bytes are not a game in a known version
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("No encoded game");
+        }
+        if (bytes[0] != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported ChessGame encoding version " + bytes[0]);
+        }
+        if (bytes.length != VERSION_1_BYTES) {
+            throw new IllegalArgumentException("Encoded game should be " + VERSION_1_BYTES + " bytes, was "
+                    + bytes.length);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int packed = bytes[HEADER_BYTES + (square >>> 1)];
+            int nibble = (square & 1) == 0 ? packed & 0xF : (packed >>> 4) & 0xF;
+            if (nibble > 12) {
+                throw new IllegalArgumentException("Invalid piece " + nibble + " on square " + square);
+            }
+            if (nibble != 0) {
+                board.setPiece(square, ChessPiece.of(nibble - 1));
+            }
+        }
+        ChessGame.TeamColor turn = (bytes[1] & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        return new ChessGame(board, turn);
+    }
+}
@@ -1,5 +1,12 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -10,8 +17,19 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.GsonAdapter.class)
 public class ChessPiece implements Cloneable{
 
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[index(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,6 +38,23 @@ public class ChessPiece implements Cloneable{
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a piece. Pieces are immutable, so callers
+     * should prefer this to the constructor.
+     *
+     * @return the shared piece of the given color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[index(pieceColor, type)];
+    }
+
+    /**
+     * @return the shared piece for a slot returned by {@link #index()}
+     */
+    static ChessPiece of(int index) {
+        return PIECES[index];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -46,6 +81,17 @@ public class ChessPiece implements Cloneable{
         return type;
     }
 
+    /**
+     * @return this piece's slot (0-11) in the per-piece tables kept by the board
+     */
+    int index() {
+        return index(pieceColor, type);
+    }
+
+    static int index(ChessGame.TeamColor color, PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
     @Override
     public ChessPiece clone() {
         try {
@@ -63,222 +109,71 @@ public class ChessPiece implements Cloneable{
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> validMoves = new ArrayList<>();
+        MoveList moves = new MoveList(32);
+        pieceMoves(board, Bitboards.square(myPosition.getRow(), myPosition.getColumn()), moves);
 
-        switch (getPieceType()) {
-            case KING:
-                addKingMoves(validMoves, board, myPosition);
-                break;
-            case QUEEN:
-                addDiagonalMoves(validMoves, board, myPosition);
-                addLinearMoves(validMoves, board, myPosition);
-                break;
-            case BISHOP:
-                addDiagonalMoves(validMoves, board, myPosition);
-                break;
-            case KNIGHT:
-                addKnightMoves(validMoves, board, myPosition);
-                break;
-            case ROOK:
-                addLinearMoves(validMoves, board, myPosition);
-                break;
-            case PAWN:
-                addPawnMoves(validMoves, board, myPosition);
+        Collection<ChessMove> validMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            validMoves.add(new ChessMove(myPosition, ChessPosition.of(PackedMove.to(move)), PackedMove.promotion(move)));
         }
-        //moves are going to go here. Modularize this!
         return validMoves;
     }
 
-    private void addDiagonalMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        for (int i = -1; i <= 1; i += 2) {
-            for (int j = -1; j <= 1; j += 2) {
-                int newRow = row + i;
-                int newCol = col + j;
-
-                while (newRow >= 1 && newRow <= 8 && newCol >= 1 && newCol <= 8) {
-                    ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                    ChessPiece piece = board.getPiece(newPosition);
-
-                    if (piece == null) {
-                        validMoves.add(new ChessMove(myPosition, newPosition, null));
-                    } else if (piece.getTeamColor() != getTeamColor()) {
-                        validMoves.add(new ChessMove(myPosition, newPosition, null));
-                        break;
-                    } else {
-                        break;
-                    }
-
-                    newRow += i;
-                    newCol += j;
-                }
-            }
-        }
-    }
-
-    private void addKingMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) {
-                    continue; // Skip the current position
-                }
-
-                int newRow = row + i;
-                int newCol = col + j;
-                addValidMove(validMoves, board, myPosition, newRow, newCol);
-            }
-        }
-    }
-
-    private void addValidMove(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition, int newRow, int newCol) {
-        if (newRow >= 1 && newRow <= 8 && newCol >= 1 && newCol <= 8) {
-            ChessPosition newPosition = new ChessPosition(newRow, newCol);
-            ChessPiece piece = board.getPiece(newPosition);
-
-            if (piece == null || piece.getTeamColor() != getTeamColor()) {
-                validMoves.add(new ChessMove(myPosition, newPosition, null));
-            }
-        }
-    }
-
-    private void addLinearMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        for (int i = -1; i <= 1; i += 2) {
-            int newRow = row + i;
-            int newCol = col;
-
-            while (newRow >= 1 && newRow <= 8) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                ChessPiece piece = board.getPiece(newPosition);
-
-                if (piece == null) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                } else if (piece.getTeamColor() != getTeamColor()) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                    break;
-                } else {
-                    break;
-                }
-
-                newRow += i;
-            }
-        }
-
-        for (int i = -1; i <= 1; i += 2) {
-            int newRow = row;
-            int newCol = col + i;
-
-            while (newCol >= 1 && newCol <= 8) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                ChessPiece piece = board.getPiece(newPosition);
-
-                if (piece == null) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                } else if (piece.getTeamColor() != getTeamColor()) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                    break;
-                } else {
-                    break;
-                }
-
-                newCol += i;
-            }
-        }
-    }
-
-    private void addKnightMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        int[] rows = {-2, -2, -1, -1, 1, 1, 2, 2};
-        int[] cols = {-1, 1, -2, 2, -2, 2, -1, 1};
+    /**
+     * Appends the packed moves this piece could make from a square, ignoring
+     * whether they leave the king in danger. Allocates nothing.
+     *
+     * @param board the board to move on
+     * @param from  the square index this piece stands on
+     * @param moves the buffer to append to
+     */
+    void pieceMoves(ChessBoard board, int from, MoveList moves) {
+        long own = board.occupancy(pieceColor);
+        long occupied = board.occupancy();
 
-        for (int i = 0; i < 8; i++) {
-            int newRow = row + rows[i];
-            int newCol = col + cols[i];
-            addValidMove(validMoves, board, myPosition, newRow, newCol);
+        if (type == PieceType.PAWN) {
+            addPawnMoves(moves, from, occupied, occupied & ~own);
+        } else {
+            addTargetMoves(moves, from, Bitboards.attacks(type, from, occupied) & ~own, occupied, false);
         }
     }
 
-    private void addPawnMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
+    private void addPawnMoves(MoveList moves, int from, long occupied, long enemies) {
+        long pushes;
         if (getTeamColor() == ChessGame.TeamColor.WHITE) {
-            if (row == 2) {
-                ChessPosition newPosition = new ChessPosition(row + 2, col);
-                ChessPosition confirmPosition = new ChessPosition(row + 1, col);
-                if (board.getPiece(confirmPosition) == null && board.getPiece(newPosition) == null) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
-
-            ChessPosition newPosition = new ChessPosition(row + 1, col);
-            if (isValidPosition(newPosition, board)) {
-                if (board.getPiece(newPosition) == null) {
-                    addPawnPromotionMoves(validMoves, myPosition, newPosition);
-                }
+            pushes = (1L << from << 8) & ~occupied;
+            if (Bitboards.row(from) == 2) {
+                pushes |= (pushes << 8) & ~occupied;
             }
-
-            addDiagonalCaptureMoves(validMoves, board, myPosition, row + 1, col + 1);
-            addDiagonalCaptureMoves(validMoves, board, myPosition, row + 1, col - 1);
         } else {
-            if (row == 7) {
-                ChessPosition newPosition = new ChessPosition(row - 2, col);
-                ChessPosition confirmPosition = new ChessPosition(row - 1, col);
-                if (board.getPiece(confirmPosition) == null && board.getPiece(newPosition) == null) {
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
-
-            ChessPosition newPosition = new ChessPosition(row - 1, col);
-            if (isValidPosition(newPosition, board)) {
-                if (board.getPiece(newPosition) == null) {
-                    addPawnPromotionMoves(validMoves, myPosition, newPosition);
-                }
+            pushes = (1L << from >>> 8) & ~occupied;
+            if (Bitboards.row(from) == 7) {
+                pushes |= (pushes >>> 8) & ~occupied;
             }
-
-            addDiagonalCaptureMoves(validMoves, board, myPosition, row - 1, col + 1);
-            addDiagonalCaptureMoves(validMoves, board, myPosition, row - 1, col - 1);
         }
-    }
-
-    private void addDiagonalCaptureMoves(Collection<ChessMove> validMoves, ChessBoard board, ChessPosition myPosition, int newRow, int newCol) {
-        ChessPosition newPosition = new ChessPosition(newRow, newCol);
-        if (isValidPosition(newPosition, board)) {
-            ChessPiece piece = board.getPiece(newPosition);
-            if (piece != null && piece.getTeamColor() != getTeamColor()) {
-                addPawnPromotionMoves(validMoves, myPosition, newPosition);
+        long captures = Bitboards.PAWN_ATTACKS[pieceColor.ordinal()][from] & enemies;
+        addTargetMoves(moves, from, pushes | captures, occupied, true);
+    }
+
+    private void addTargetMoves(MoveList moves, int from, long targets, long occupied, boolean canPromote) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (occupied & 1L << to) != 0 ? PackedMove.CAPTURE : 0;
+            int row = Bitboards.row(to);
+
+            if (canPromote && (row == 8 || row == 1)) {
+                moves.add(PackedMove.encode(from, to, PieceType.QUEEN, flags));
+                moves.add(PackedMove.encode(from, to, PieceType.ROOK, flags));
+                moves.add(PackedMove.encode(from, to, PieceType.BISHOP, flags));
+                moves.add(PackedMove.encode(from, to, PieceType.KNIGHT, flags));
+            } else {
+                moves.add(PackedMove.encode(from, to, null, flags));
             }
         }
     }
 
-    private void addPawnPromotionMoves(Collection<ChessMove> validMoves, ChessPosition myPosition, ChessPosition newPosition) {
-        if (newPosition.getRow() == 8 || newPosition.getRow() == 1) {
-            validMoves.add(new ChessMove(myPosition, newPosition, PieceType.QUEEN));
-            validMoves.add(new ChessMove(myPosition, newPosition, PieceType.ROOK));
-            validMoves.add(new ChessMove(myPosition, newPosition, PieceType.BISHOP));
-            validMoves.add(new ChessMove(myPosition, newPosition, PieceType.KNIGHT));
-        } else {
-            validMoves.add(new ChessMove(myPosition, newPosition, null));
-        }
-    }
-
-
-    private boolean isValidPosition(ChessPosition position, ChessBoard board) {
-        int row = position.getRow();
-        int col = position.getColumn();
-
-        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) {return true;}
@@ -299,4 +194,44 @@ public class ChessPiece implements Cloneable{
                 ", type=" + type +
                 '}';
     }
+
+    /**
+     * Keeps the {"pieceColor":..,"type":..} JSON shape while resolving to shared instances
+     */
+    static final class GsonAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            if (piece == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("pieceColor").value(piece.pieceColor.name());
+            out.name("type").value(piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessGame.TeamColor color = null;
+            PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new IOException("Chess piece needs both pieceColor and type");
+            }
+            return of(color, type);
+        }
+    }
 }
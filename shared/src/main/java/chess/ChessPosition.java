@@ -1,5 +1,12 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -8,8 +15,17 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPosition.GsonAdapter.class)
 public class ChessPosition {
 
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(Bitboards.row(square), Bitboards.column(square));
+        }
+    }
+
     private final int row, col;
 
     public ChessPosition(int row, int col) {
@@ -17,6 +33,23 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square. Positions are immutable, so callers
+     * should prefer this to the constructor.
+     *
+     * @return the shared position, or a new one if the square is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        return Bitboards.isOnBoard(row, col) ? POSITIONS[Bitboards.square(row, col)] : new ChessPosition(row, col);
+    }
+
+    /**
+     * @return the shared position for a square index, see {@link Bitboards}
+     */
+    static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -45,4 +78,41 @@ public class ChessPosition {
     public int getColumn() {
         return col;
     }
+
+    /**
+     * Keeps the {"row":..,"col":..} JSON shape while resolving to shared instances
+     */
+    static final class GsonAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            if (position == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("row").value(position.row);
+            out.name("col").value(position.col);
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int row = 0;
+            int col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return of(row, col);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable buffer of {@link PackedMove packed moves}. Clearing and
+ * refilling it allocates nothing once it has grown to the needed size.
+ */
+final class MoveList {
+
+    private int[] moves;
+    private int size;
+
+    MoveList() {
+        this(64);
+    }
+
+    MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    int get(int index) {
+        return moves[index];
+    }
+
+    void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drops every move from the given index on
+     */
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
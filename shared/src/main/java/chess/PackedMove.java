@@ -0,0 +1,67 @@
+package chess;
+
+/**
+ * Encodes a move as a single int so move lists can live in primitive buffers.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square (square indexes as
+ * in {@link Bitboards}), bits 12-14 the promotion piece (0 for none, otherwise
+ * {@link ChessPiece.PieceType#ordinal()} + 1) and bit 15 is set for captures.
+ * Every encoded move fits in 16 bits.
+ */
+public final class PackedMove {
+
+    static final int CAPTURE = 1 << 15;
+
+    private static final int SQUARE_BITS = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_BITS = 0x7;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | to << TO_SHIFT | promotionBits << PROMOTION_SHIFT | flags;
+    }
+
+    static int from(int move) {
+        return move & SQUARE_BITS;
+    }
+
+    static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_BITS;
+    }
+
+    static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> PROMOTION_SHIFT) & PROMOTION_BITS;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * Packs a move for compact storage. The capture flag is not set, since it
+     * depends on the board the move is played on.
+     *
+     * @param move a move whose positions are on the board
+     * @return the packed move
+     */
+    public static int pack(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        return encode(Bitboards.square(start.getRow(), start.getColumn()),
+                Bitboards.square(end.getRow(), end.getColumn()), move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * @param move a move produced by {@link #pack} or the engine's move generator
+     * @return the equivalent ChessMove
+     */
+    public static ChessMove unpack(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+}
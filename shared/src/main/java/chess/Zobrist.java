@@ -0,0 +1,29 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist position hashing. A position's key is the XOR of one
+ * key per occupied square plus {@link #BLACK_TO_MOVE} when it is black's turn, so
+ * it can be updated in O(1) as pieces come and go.
+ * <p>
+ * The seed is fixed so keys are stable across runs and can be stored.
+ */
+final class Zobrist {
+
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
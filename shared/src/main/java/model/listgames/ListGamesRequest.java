@@ -1,4 +1,21 @@
 package model.listgames;
 
-public record ListGamesRequest(String authToken) {
+/**
+ * @param summaryOnly list each game without its board
+ * @param cursor      only list games after this game ID; pass the previous page's nextCursor
+ * @param limit       the most games to list, or null for every game
+ * @param openSeat    only list games with a seat free
+ * @param player      only list games this user plays in
+ * @param namePrefix  only list games whose name starts with this
+ */
+public record ListGamesRequest(String authToken, boolean summaryOnly, Integer cursor, Integer limit,
+                               boolean openSeat, String player, String namePrefix) {
+
+    public ListGamesRequest(String authToken) {
+        this(authToken, false);
+    }
+
+    public ListGamesRequest(String authToken, boolean summaryOnly) {
+        this(authToken, summaryOnly, null, null, false, null, null);
+    }
 }
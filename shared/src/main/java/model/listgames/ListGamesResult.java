@@ -2,5 +2,12 @@ package model.listgames;
 import model.GameData;
 import java.util.Collection;
 
-public record ListGamesResult(Collection<GameData> games) {
+/**
+ * @param nextCursor the cursor for the next page, or null if there are no more games
+ */
+public record ListGamesResult(Collection<GameData> games, Integer nextCursor) {
+
+    public ListGamesResult(Collection<GameData> games) {
+        this(games, null);
+    }
 }
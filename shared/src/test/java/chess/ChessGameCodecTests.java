@@ -0,0 +1,57 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class ChessGameCodecTests {
+
+    @Test
+    @DisplayName("Games survive a round trip")
+    public void roundTrip() throws InvalidMoveException {
+        ChessGame start = new ChessGame();
+        Assertions.assertEquals(start, ChessGameCodec.decode(ChessGameCodec.encode(start)));
+
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+
+        ChessGame promotions = new ChessGame();
+        promotions.setBoard(loadBoard("""
+                |n| |n| | | | | |
+                |P|P|P|k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|p|p|p|
+                | | | | | |N| |N|
+                """));
+        Assertions.assertEquals(promotions, ChessGameCodec.decode(ChessGameCodec.encode(promotions)));
+    }
+
+    @Test
+    @DisplayName("Encoding is far smaller than Gson's JSON")
+    public void size() {
+        ChessGame game = new ChessGame();
+        int jsonBytes = new Gson().toJson(game).getBytes().length;
+        Assertions.assertEquals(34, ChessGameCodec.encode(game).length);
+        Assertions.assertTrue(jsonBytes > 20 * 34, "JSON was only " + jsonBytes + " bytes");
+    }
+
+    @Test
+    @DisplayName("Unknown versions and damaged input are rejected")
+    public void rejectsBadInput() {
+        byte[] bytes = ChessGameCodec.encode(new ChessGame());
+        bytes[0] = 2;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(bytes));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[]{1, 0}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[0]));
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FlyweightTests {
+
+    @Test
+    @DisplayName("Factories return shared instances")
+    public void sharedInstances() {
+        Assertions.assertSame(ChessPosition.of(3, 4), ChessPosition.of(3, 4));
+        Assertions.assertEquals(new ChessPosition(3, 4), ChessPosition.of(3, 4));
+        Assertions.assertEquals(new ChessPosition(0, 9), ChessPosition.of(0, 9));
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+    }
+
+    @Test
+    @DisplayName("Gson keeps the JSON shape and resolves to shared instances")
+    public void gsonRoundTrip() {
+        Gson gson = new Gson();
+        Assertions.assertEquals("{\"row\":2,\"col\":7}", gson.toJson(new ChessPosition(2, 7)));
+        Assertions.assertEquals("{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}",
+                gson.toJson(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)));
+
+        ChessGame game = new ChessGame();
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game, loaded);
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                loaded.getBoard().getPiece(ChessPosition.of(2, 3)));
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove loadedMove = gson.fromJson(gson.toJson(move), ChessMove.class);
+        Assertions.assertEquals(move, loadedMove);
+        Assertions.assertSame(ChessPosition.of(4, 5), loadedMove.getEndPosition());
+    }
+}
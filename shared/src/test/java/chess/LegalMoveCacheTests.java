@@ -0,0 +1,45 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class LegalMoveCacheTests {
+
+    private static final ChessPosition KNIGHT = ChessPosition.of(1, 2);
+
+    @Test
+    @DisplayName("Cached moves follow makeMove and setBoard")
+    public void invalidatedOnMoveAndBoard() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(2, game.validMoves(KNIGHT).size());
+
+        game.makeMove(new ChessMove(ChessPosition.of(2, 4), ChessPosition.of(4, 4), null));
+        Assertions.assertEquals(3, game.validMoves(KNIGHT).size());
+
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | |N| | |K| | | |
+                """));
+        Assertions.assertEquals(3, game.validMoves(KNIGHT).size());
+    }
+
+    @Test
+    @DisplayName("Cached moves follow edits made through getBoard")
+    public void invalidatedOnDirectBoardEdit() {
+        ChessGame game = new ChessGame();
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+
+        game.getBoard().addPiece(ChessPosition.of(3, 1),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        Assertions.assertEquals(1, game.validMoves(KNIGHT).size());
+    }
+}
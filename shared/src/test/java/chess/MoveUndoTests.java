@@ -0,0 +1,64 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class MoveUndoTests {
+
+    private static final String BOARD = """
+            |r| | | |k| | |r|
+            | |P| | | | | | |
+            | | | | | | | | |
+            | | | |p| | | | |
+            | | | | | | | | |
+            | | | | | |n| | |
+            | | | | | | | | |
+            |R| | | |K| | |R|
+            """;
+
+    @Test
+    @DisplayName("Undo restores a capture")
+    public void undoCapture() {
+        assertRoundTrip(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null));
+        assertRoundTrip(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 5), null));
+    }
+
+    @Test
+    @DisplayName("Undo restores a capturing promotion")
+    public void undoPromotion() {
+        ChessBoard board = loadBoard(BOARD);
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        int undo = board.applyMove(move);
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                board.getPiece(new ChessPosition(8, 1)));
+        board.undoMove(move, undo);
+        Assertions.assertEquals(loadBoard(BOARD), board);
+    }
+
+    @Test
+    @DisplayName("Undo restores both castling pieces")
+    public void undoCastle() {
+        ChessBoard board = loadBoard(BOARD);
+        ChessMove move = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 3), null);
+        int undo = board.applyMove(move);
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                board.getPiece(new ChessPosition(1, 4)));
+        Assertions.assertNull(board.getPiece(new ChessPosition(1, 1)));
+        board.undoMove(move, undo);
+        Assertions.assertEquals(loadBoard(BOARD), board);
+
+        assertRoundTrip(new ChessMove(new ChessPosition(8, 5), new ChessPosition(8, 7), null));
+    }
+
+    private static void assertRoundTrip(ChessMove move) {
+        ChessBoard board = loadBoard(BOARD);
+        int undo = board.applyMove(move);
+        Assertions.assertNotEquals(loadBoard(BOARD), board);
+        board.undoMove(move, undo);
+        Assertions.assertEquals(loadBoard(BOARD), board);
+        Assertions.assertEquals(board.occupancy(), loadBoard(BOARD).occupancy());
+    }
+}
@@ -0,0 +1,261 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class PerftTests {
+
+    private static final String PROMOTIONS = """
+            |n| |n| | | | | |
+            |P|P|P|k| | | | |
+            | | | | | | | | |
+            | | | | | | | | |
+            | | | | | | | | |
+            | | | | | | | | |
+            | | | | |K|p|p|p|
+            | | | | | |N| |N|
+            """;
+
+    private static final String ENDGAME = """
+            | | | | | | | | |
+            | | |p| | | | | |
+            | | | |p| | | | |
+            |K|P| | | | | |r|
+            | |R| | | |p| |k|
+            | | | | | | | | |
+            | | | | |P| |P| |
+            | | | | | | | | |
+            """;
+
+    @Test
+    @DisplayName("Start position matches published perft counts")
+    public void startPosition() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(20, perft(game, 1));
+        Assertions.assertEquals(400, perft(game, 2));
+        Assertions.assertEquals(8902, perft(game, 3));
+        Assertions.assertEquals(197281, perft(game, 4));
+    }
+
+    @Test
+    @DisplayName("Promotion position matches published perft counts")
+    public void promotionPosition() {
+        ChessGame game = gameOf(PROMOTIONS, ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(24, perft(game, 1));
+        Assertions.assertEquals(496, perft(game, 2));
+        Assertions.assertEquals(9483, perft(game, 3));
+    }
+
+    @Test
+    @DisplayName("Endgame position matches published perft counts")
+    public void endgamePosition() {
+        ChessGame game = gameOf(ENDGAME, ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(14, perft(game, 1));
+        Assertions.assertEquals(191, perft(game, 2));
+    }
+
+    @Test
+    @DisplayName("Bitboard generator agrees with the square-probing generator")
+    public void matchesReferenceGenerator() {
+        assertSameMoves(new ChessGame(), 3);
+        assertSameMoves(gameOf(PROMOTIONS, ChessGame.TeamColor.BLACK), 3);
+        assertSameMoves(gameOf(ENDGAME, ChessGame.TeamColor.WHITE), 3);
+    }
+
+    @Test
+    @DisplayName("Packed move generation with apply/undo matches perft counts")
+    public void packedMoves() {
+        Assertions.assertEquals(197281, packedPerft(new ChessGame(), 4));
+        Assertions.assertEquals(9483, packedPerft(gameOf(PROMOTIONS, ChessGame.TeamColor.BLACK), 3));
+
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1),
+                ChessPiece.PieceType.KNIGHT);
+        Assertions.assertEquals(promotion, PackedMove.unpack(PackedMove.pack(promotion)));
+    }
+
+    private static long packedPerft(ChessGame game, int depth) {
+        MoveList moves = new MoveList();
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        game.legalMoves(turn, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        ChessGame.TeamColor next = turn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int undo = game.getBoard().applyMove(moves.get(i));
+            game.setTeamTurn(next);
+            nodes += packedPerft(game, depth - 1);
+            game.setTeamTurn(turn);
+            game.getBoard().undoMove(moves.get(i), undo);
+        }
+        return nodes;
+    }
+
+    private static ChessGame gameOf(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    static long perft(ChessGame game, int depth) {
+        Collection<ChessMove> moves = legalMoves(game);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (ChessMove move : moves) {
+            nodes += perft(play(game, move), depth - 1);
+        }
+        return nodes;
+    }
+
+    private static void assertSameMoves(ChessGame game, int depth) {
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece != null) {
+                    Assertions.assertEquals(ReferenceGenerator.pieceMoves(piece, board, position),
+                            new HashSet<>(piece.pieceMoves(board, position)),
+                            "Moves differ for " + piece + " at " + row + "," + col);
+                }
+            }
+        }
+        if (depth > 1) {
+            for (ChessMove move : legalMoves(game)) {
+                assertSameMoves(play(game, move), depth - 1);
+            }
+        }
+    }
+
+    private static Collection<ChessMove> legalMoves(ChessGame game) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    moves.addAll(game.validMoves(position));
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static ChessGame play(ChessGame game, ChessMove move) {
+        ChessGame next = new ChessGame();
+        next.setBoard(game.getBoard().clone());
+        next.setTeamTurn(game.getTeamTurn());
+        try {
+            next.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new AssertionError("validMoves returned an unplayable move", e);
+        }
+        return next;
+    }
+
+    /**
+     * The square-by-square generator the bitboard code replaced, kept as an oracle.
+     */
+    private static final class ReferenceGenerator {
+
+        static HashSet<ChessMove> pieceMoves(ChessPiece piece, ChessBoard board, ChessPosition from) {
+            HashSet<ChessMove> moves = new HashSet<>();
+            switch (piece.getPieceType()) {
+                case KING -> steps(moves, piece, board, from, new int[][]{
+                        {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+                case KNIGHT -> steps(moves, piece, board, from, new int[][]{
+                        {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}});
+                case BISHOP -> rays(moves, piece, board, from, new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
+                case ROOK -> rays(moves, piece, board, from, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}});
+                case QUEEN -> rays(moves, piece, board, from, new int[][]{
+                        {1, 1}, {1, -1}, {-1, 1}, {-1, -1}, {1, 0}, {-1, 0}, {0, 1}, {0, -1}});
+                case PAWN -> pawn(moves, piece, board, from);
+            }
+            return moves;
+        }
+
+        private static void steps(HashSet<ChessMove> moves, ChessPiece piece, ChessBoard board,
+                                  ChessPosition from, int[][] offsets) {
+            for (int[] offset : offsets) {
+                int row = from.getRow() + offset[0];
+                int col = from.getColumn() + offset[1];
+                if (onBoard(row, col)) {
+                    ChessPiece target = board.getPiece(new ChessPosition(row, col));
+                    if (target == null || target.getTeamColor() != piece.getTeamColor()) {
+                        moves.add(new ChessMove(from, new ChessPosition(row, col), null));
+                    }
+                }
+            }
+        }
+
+        private static void rays(HashSet<ChessMove> moves, ChessPiece piece, ChessBoard board,
+                                 ChessPosition from, int[][] directions) {
+            for (int[] dir : directions) {
+                int row = from.getRow() + dir[0];
+                int col = from.getColumn() + dir[1];
+                while (onBoard(row, col)) {
+                    ChessPiece target = board.getPiece(new ChessPosition(row, col));
+                    if (target != null && target.getTeamColor() == piece.getTeamColor()) {
+                        break;
+                    }
+                    moves.add(new ChessMove(from, new ChessPosition(row, col), null));
+                    if (target != null) {
+                        break;
+                    }
+                    row += dir[0];
+                    col += dir[1];
+                }
+            }
+        }
+
+        private static void pawn(HashSet<ChessMove> moves, ChessPiece piece, ChessBoard board, ChessPosition from) {
+            boolean white = piece.getTeamColor() == ChessGame.TeamColor.WHITE;
+            int dir = white ? 1 : -1;
+            int row = from.getRow() + dir;
+            int col = from.getColumn();
+            if (onBoard(row, col) && board.getPiece(new ChessPosition(row, col)) == null) {
+                pawnMove(moves, from, row, col);
+                boolean onStartRow = from.getRow() == (white ? 2 : 7);
+                if (onStartRow && board.getPiece(new ChessPosition(row + dir, col)) == null) {
+                    pawnMove(moves, from, row + dir, col);
+                }
+            }
+            for (int side = -1; side <= 1; side += 2) {
+                if (onBoard(row, col + side)) {
+                    ChessPiece target = board.getPiece(new ChessPosition(row, col + side));
+                    if (target != null && target.getTeamColor() != piece.getTeamColor()) {
+                        pawnMove(moves, from, row, col + side);
+                    }
+                }
+            }
+        }
+
+        private static void pawnMove(HashSet<ChessMove> moves, ChessPosition from, int row, int col) {
+            ChessPosition to = new ChessPosition(row, col);
+            if (row == 1 || row == 8) {
+                for (ChessPiece.PieceType type : new ChessPiece.PieceType[]{ChessPiece.PieceType.QUEEN,
+                        ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT}) {
+                    moves.add(new ChessMove(from, to, type));
+                }
+            } else {
+                moves.add(new ChessMove(from, to, null));
+            }
+        }
+
+        private static boolean onBoard(int row, int col) {
+            return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+        }
+    }
+}
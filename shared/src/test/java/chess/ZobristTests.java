@@ -0,0 +1,62 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Transposed move orders reach the same key")
+    public void transposition() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 2, 3, 3));
+        first.makeMove(move(8, 2, 6, 3));
+        first.makeMove(move(1, 7, 3, 6));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 7, 3, 6));
+        second.makeMove(move(8, 2, 6, 3));
+        second.makeMove(move(1, 2, 3, 3));
+
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("Side to move changes the key")
+    public void sideToMove() {
+        ChessGame game = new ChessGame();
+        long whiteKey = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(whiteKey, game.getZobristKey());
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(whiteKey, game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Key matches a board built from scratch")
+    public void incrementalMatchesRebuilt() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 4));
+
+        ChessGame loaded = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getZobristKey(), loaded.getZobristKey());
+        Assertions.assertEquals(game.getBoard().getZobristKey(), game.getBoard().clone().getZobristKey());
+
+        long key = game.getBoard().getZobristKey();
+        ChessMove capture = move(8, 4, 5, 4);
+        int undo = game.getBoard().applyMove(capture);
+        Assertions.assertNotEquals(key, game.getBoard().getZobristKey());
+        game.getBoard().undoMove(capture, undo);
+        Assertions.assertEquals(key, game.getBoard().getZobristKey());
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(ChessPosition.of(startRow, startCol), ChessPosition.of(endRow, endCol), null);
+    }
+}